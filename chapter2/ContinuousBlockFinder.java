@@ -0,0 +1,154 @@
+package chapter2;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleFunction;
+
+import chapter2.Matrix.IndexType;
+import math.Ordinal;
+
+/**
+ * Finds largest continuous ascending or descending block within rows or columns of matrix.
+ * All rows (columns) are treated as one sequence of {@code dimension*dimension} elements where runs never cross line boundaries,
+ * so the sequence is split into chunks regardless of row length, chunks are scanned concurrently and runs crossing chunk boundaries are merged.
+ * As in sequential scan the first of the largest blocks (the one with the least row/column and start) wins
+ * 
+ * @author Serhii Pylypenko
+ * @param <T> type of matrix element
+ * @version 1.5
+ */
+class ContinuousBlockFinder<T extends Ordinal<T>> {
+
+	private static final int MIN_CHUNK=1<<14;//minimal number of elements scanned by one thread
+
+	private final Matrix<T> matrix;
+	private final IndexType iType;
+	private final boolean ascending;
+	private final ToDoubleFunction<? super T> key;//optional primitive key, compared instead of elements
+	private final int dimension;
+
+	ContinuousBlockFinder(final Matrix<T> matrix,final IndexType iType,final boolean ascending,final ToDoubleFunction<? super T> key) {
+		this.matrix=matrix;
+		this.iType=iType;
+		this.ascending=ascending;
+		this.key=key;
+		this.dimension=matrix.getDimension();
+	}
+
+	//describes runs of chunk [from,to): run starting at 'from', run finishing at 'to' and the first largest run
+	private static class Summary {
+		final int from, to;
+		final int prefixEnd, suffixStart;
+		final int bestStart, bestLength;
+
+		Summary(final int from,final int to,final int prefixEnd,final int suffixStart,final int bestStart,final int bestLength) {
+			this.from=from;
+			this.to=to;
+			this.prefixEnd=prefixEnd;
+			this.suffixStart=suffixStart;
+			this.bestStart=bestStart;
+			this.bestLength=bestLength;
+		}
+	}
+
+	private T getValue(final int line,final int position) {
+		return iType==IndexType.ROW?matrix.get(line,position):matrix.get(position,line);
+	}
+
+	private boolean continues(final T previous,final T next) {
+		if(key!=null) {
+			final double previousKey=key.applyAsDouble(previous), nextKey=key.applyAsDouble(next);
+			return ascending?previousKey<nextKey:previousKey>nextKey;
+		}
+		final int comparison=previous.compareTo(next);
+		return ascending?comparison<0:comparison>0;
+	}
+
+	//checks if run continues across boundary between elements 'k-1' and 'k'
+	private boolean joined(final int k) {
+		final int line=k/dimension, position=k%dimension;
+		return position>0 && continues(getValue(line,position-1),getValue(line,position));
+	}
+
+	private Summary scan(final int from,final int to) {
+		int line=from/dimension, position=from%dimension;
+		int runStart=from, prefixEnd=-1;
+		int bestStart=from, bestLength=0;
+		T previous=null;
+		double previousKey=0;
+		for(int k=from;k<to;k++) {
+			final T value=getValue(line,position);
+			final double valueKey=key!=null?key.applyAsDouble(value):0;
+			final boolean continued=k>from && position>0 && (key!=null?
+					(ascending?previousKey<valueKey:previousKey>valueKey):
+						continues(previous,value));
+			if(!continued && k>from) {//close run [runStart,k)
+				if(prefixEnd<0) prefixEnd=k;
+				if(k-runStart>bestLength) {
+					bestStart=runStart;
+					bestLength=k-runStart;
+				}
+				runStart=k;
+			}
+			previous=value;
+			previousKey=valueKey;
+			if(++position==dimension) {
+				position=0;
+				line++;
+			}
+		}
+		if(prefixEnd<0) prefixEnd=to;
+		if(to-runStart>bestLength) {
+			bestStart=runStart;
+			bestLength=to-runStart;
+		}
+		return new Summary(from,to,prefixEnd,runStart,bestStart,bestLength);
+	}
+
+	private Summary merge(final Summary left,final Summary right) {
+		final boolean joined=joined(right.from);
+		int bestStart=left.bestStart, bestLength=left.bestLength;//candidates are checked in order of their starts, so the first largest run wins
+		if(joined && right.prefixEnd-left.suffixStart>bestLength) {
+			bestStart=left.suffixStart;
+			bestLength=right.prefixEnd-left.suffixStart;
+		}
+		if(right.bestLength>bestLength) {
+			bestStart=right.bestStart;
+			bestLength=right.bestLength;
+		}
+		return new Summary(
+				left.from,right.to,
+				joined && left.prefixEnd==left.to?right.prefixEnd:left.prefixEnd,
+				joined && right.suffixStart==right.from?left.suffixStart:right.suffixStart,
+				bestStart,bestLength);
+	}
+
+	private class ScanTask extends RecursiveTask<Summary> {
+
+		private static final long serialVersionUID = -6307270413787418655L;
+
+		private final int from, to;
+
+		ScanTask(final int from,final int to) {
+			this.from=from;
+			this.to=to;
+		}
+
+		@Override protected Summary compute() {
+			if(to-from<=MIN_CHUNK) return scan(from,to);
+			final int middle=(from+to)>>>1;
+			final ScanTask left=new ScanTask(from,middle);
+			left.fork();
+			final Summary right=new ScanTask(middle,to).compute();
+			return merge(left.join(),right);
+		}
+	}
+
+	Matrix<T>.Segment find(final boolean parallel) {
+		final int size=dimension*dimension;
+		final Summary summary=parallel?ForkJoinPool.commonPool().invoke(new ScanTask(0,size)):scan(0,size);
+		final int line=summary.bestStart/dimension, start=summary.bestStart%dimension;
+		return matrix.new Segment(iType,line,start,start+summary.bestLength);
+	}
+
+}
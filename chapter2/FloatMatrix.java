@@ -0,0 +1,234 @@
+package chapter2;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+import chapter2.Matrix.IndexType;
+import math.Real;
+import math.Summation;
+import utils.Utensils;
+
+/**
+ * Square matrix of single precision values stored row by row in one array (4 bytes per element instead of about 24 bytes taken by {@code Real}).
+ * Elements are widened to double on reading, so all sums, norms, averages and determinant are accumulated in double precision
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public class FloatMatrix implements Serializable {
+
+	private static final long serialVersionUID = 2470937156244386212L;
+
+	private final int dimension;
+	private final float[] data;//element (row,column) is kept at row*dimension+column
+
+	/**
+	 * Creates matrix filled with zeros
+	 * @param dimension number of columns and rows of square matrix
+	 */
+	public FloatMatrix(final int dimension) {
+		if(dimension<1 || dimension>46340) throw new RuntimeException(String.format("wrong dimension %d, it should be within [1,46340]",dimension));
+		this.dimension=dimension;
+		data=new float[dimension*dimension];
+	}
+
+	/**
+	 * Creates matrix by narrowing elements of {@code matrix} to single precision
+	 * @param matrix source matrix
+	 */
+	public FloatMatrix(final Matrix<Real> matrix) {
+		this(matrix.getDimension());
+		processInBands(true,(from,to)->{
+			for(int row=from;row<to;row++) {
+				for(int column=0;column<dimension;column++) {
+					data[row*dimension+column]=(float)matrix.get(row,column).doubleValue();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Creates matrix of {@code Real} elements with the same values
+	 * @return new matrix
+	 */
+	public Matrix<Real> toMatrix() {
+		final Real[][] rows=new Real[dimension][dimension];
+		processInBands(true,(from,to)->{
+			for(int row=from;row<to;row++) {
+				for(int column=0;column<dimension;column++) {
+					rows[row][column]=new Real(data[row*dimension+column]);
+				}
+			}
+		});
+		return new Matrix<Real>(rows);
+	}
+
+	private void processInBands(final boolean parallel,final Utensils.BandProcessor processor) {
+		if(parallel) Utensils.processInBands(dimension,Math.max(1,Matrix.MIN_BAND_CELLS/dimension),processor);
+		else processor.process(0,dimension);
+	}
+
+	private void checkIndex(final String name,final int index) {
+		if(index<0 || index>=dimension) throw new RuntimeException(String.format("index of %s (%d) must be within [0,%d)",name,index,dimension));
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public float get(final int row,final int column) {
+		checkIndex("row",row);
+		checkIndex("column",column);
+		return data[row*dimension+column];
+	}
+
+	public void set(final int row,final int column,final float value) {
+		checkIndex("row",row);
+		checkIndex("column",column);
+		data[row*dimension+column]=value;
+	}
+
+	/**
+	 * Processes every element of matrix by given {@code processor} in double precision
+	 * @param processor processing function, must be safe to call concurrently in parallel mode
+	 * @param parallel processes bands of rows concurrently if {@code true}
+	 * @return processed matrix
+	 */
+	public FloatMatrix process(final DoubleUnaryOperator processor,final boolean parallel) {
+		processInBands(parallel,(from,to)->{
+			for(int cell=from*dimension;cell<to*dimension;cell++) {
+				data[cell]=(float)processor.applyAsDouble(data[cell]);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Sums elements of row [column] {@code index} within [start,finish)
+	 */
+	public double sum(final IndexType iType,final int index,final int start,final int finish) {
+		checkIndex("line",index);
+		if(start<0 || start>=finish || finish>dimension) throw new RuntimeException(String.format("range [%d,%d) must be non-empty and lie within [0,%d)",start,finish,dimension));
+		double sum=0;
+		if(iType==IndexType.COLUMN) {
+			for(int cell=start*dimension+index;cell<finish*dimension;cell+=dimension) sum+=data[cell];
+		}else {
+			for(int cell=index*dimension+start;cell<index*dimension+finish;cell++) sum+=data[cell];
+		}
+		return sum;
+	}
+
+	public double sum(final IndexType iType,final int index) {
+		return sum(iType,index,0,dimension);
+	}
+
+	public double average(final IndexType iType,final int index) {
+		return sum(iType,index)/dimension;
+	}
+
+	/**
+	 * Computes sums of absolute values of all rows or columns; columns are accumulated row by row within bands of columns
+	 * @param parallel processes bands of rows (columns) concurrently if {@code true}
+	 */
+	public double[] getAbsSums(final IndexType iType,final boolean parallel) {
+		final double[] sums=new double[dimension];
+		processInBands(parallel,(from,to)->{
+			if(iType==IndexType.COLUMN) {
+				for(int row=0;row<dimension;row++) {
+					final int offset=row*dimension;
+					for(int column=from;column<to;column++) sums[column]+=Math.abs(data[offset+column]);
+				}
+			}else {
+				for(int row=from;row<to;row++) {
+					double sum=0;
+					for(int cell=row*dimension;cell<(row+1)*dimension;cell++) sum+=Math.abs(data[cell]);
+					sums[row]=sum;
+				}
+			}
+		});
+		return sums;
+	}
+
+	/**
+	 * Computes norm as maximal sum of absolute values of rows or columns
+	 */
+	public double getNorm(final IndexType iType,final boolean parallel) {
+		double norm=0;
+		for(final double sum:getAbsSums(iType,parallel)) norm=Math.max(norm,sum);
+		return norm;
+	}
+
+	public double getNorm(final IndexType iType) {
+		return getNorm(iType,false);
+	}
+
+	/**
+	 * Sums all elements with compensation, result is the same regardless of {@code parallel}, see {@link Summation}
+	 */
+	public double getSum(final boolean parallel) {
+		return Summation.sum(data.length,cell->data[cell],parallel);
+	}
+
+	public double getAverage(final boolean parallel) {
+		return getSum(parallel)/data.length;
+	}
+
+	/**
+	 * Computes determinant by LU decomposition with partial pivoting in double precision, takes O(dimension^3) time
+	 * @return determinant of matrix
+	 */
+	public double getDeterminant() {
+		final double[] lu=new double[data.length];
+		for(int cell=0;cell<data.length;cell++) lu[cell]=data[cell];
+		double determinant=1;
+		for(int pivot=0;pivot<dimension;pivot++) {
+			int best=pivot;//row with greatest absolute value in pivot column
+			for(int row=pivot+1;row<dimension;row++) {
+				if(Math.abs(lu[row*dimension+pivot])>Math.abs(lu[best*dimension+pivot])) best=row;
+			}
+			final double divisor=lu[best*dimension+pivot];
+			if(divisor==0) return 0;
+			if(best!=pivot) {
+				for(int column=pivot;column<dimension;column++) {
+					final double save=lu[pivot*dimension+column];
+					lu[pivot*dimension+column]=lu[best*dimension+column];
+					lu[best*dimension+column]=save;
+				}
+				determinant=-determinant;
+			}
+			determinant*=divisor;
+			for(int row=pivot+1;row<dimension;row++) {
+				final double factor=lu[row*dimension+pivot]/divisor;
+				if(factor==0) continue;
+				for(int column=pivot+1;column<dimension;column++) {
+					lu[row*dimension+column]-=factor*lu[pivot*dimension+column];
+				}
+			}
+		}
+		return determinant;
+	}
+
+	@Override public boolean equals(final Object o) {
+		if(!(o instanceof FloatMatrix)) return false;
+		final FloatMatrix m=(FloatMatrix)o;
+		return dimension==m.dimension && Arrays.equals(data,m.data);
+	}
+
+	@Override public int hashCode() {
+		return 31*dimension+Arrays.hashCode(data);
+	}
+
+	@Override public String toString() {
+		final StringBuilder builder=new StringBuilder(dimension*(dimension*(MatrixWriter.DEFAULT_WIDTH+1)+1)+4);
+		builder.append("{\n");
+		for(int row=0;row<dimension;row++) {
+			for(int column=0;column<dimension;column++) {
+				MatrixWriter.pad(builder,Float.toString(data[row*dimension+column]),MatrixWriter.DEFAULT_WIDTH);
+			}
+			builder.append('\n');
+		}
+		return builder.append("}\n").toString();
+	}
+
+}
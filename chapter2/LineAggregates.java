@@ -0,0 +1,154 @@
+package chapter2;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+import chapter2.Matrix.IndexType;
+import math.Ordinal;
+
+/**
+ * Sums, sums of absolute values, numbers of positive and zero elements for every row and column of matrix.
+ * Aggregates are updated in O(1) on modification of single element and permuted in O(dimension) when rows or columns of matrix are moved as a whole
+ * 
+ * @author Serhii Pylypenko
+ * @param <T> type of matrix element
+ * @version 1.5
+ */
+public class LineAggregates<T extends Ordinal<T>> {
+
+	private final int dimension;
+	private T[] rowSums, columnSums, rowAbsSums, columnAbsSums;
+	private int[] rowPositives, columnPositives, rowZeros, columnZeros;
+
+	LineAggregates(final Matrix<T> matrix) {
+		dimension=matrix.getDimension();
+		rowSums=allocate(); columnSums=allocate();
+		rowAbsSums=allocate(); columnAbsSums=allocate();
+		rowPositives=new int[dimension]; columnPositives=new int[dimension];
+		rowZeros=new int[dimension]; columnZeros=new int[dimension];
+		reset(matrix);
+	}
+
+	//recomputes all aggregates from scratch after elements have been replaced in bulk
+	void reset(final Matrix<T> matrix) {
+		Arrays.fill(rowPositives,0); Arrays.fill(columnPositives,0);
+		Arrays.fill(rowZeros,0); Arrays.fill(columnZeros,0);
+		final T zero=matrix.get(0,0).zero();
+		for(int k=0;k<dimension;k++) {
+			rowSums[k]=columnSums[k]=rowAbsSums[k]=columnAbsSums[k]=zero;
+		}
+		for(int row=0;row<dimension;row++) {
+			for(int column=0;column<dimension;column++) {
+				include(row,column,matrix.get(row,column),1);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] allocate() {
+		return (T[])Array.newInstance(Ordinal.class,dimension);
+	}
+
+	//adds (sign=1) or removes (sign=-1) element from aggregates of its row and column
+	private void include(final int row,final int column,final T value,final int sign) {
+		final T abs=value.abs();
+		if(sign>0) {
+			rowSums[row]=rowSums[row].add(value);
+			columnSums[column]=columnSums[column].add(value);
+			rowAbsSums[row]=rowAbsSums[row].add(abs);
+			columnAbsSums[column]=columnAbsSums[column].add(abs);
+		}else {
+			rowSums[row]=rowSums[row].subtract(value);
+			columnSums[column]=columnSums[column].subtract(value);
+			rowAbsSums[row]=rowAbsSums[row].subtract(abs);
+			columnAbsSums[column]=columnAbsSums[column].subtract(abs);
+		}
+		if(value.positive()) {
+			rowPositives[row]+=sign;
+			columnPositives[column]+=sign;
+		}else if(value.compareTo(value.zero())==0) {
+			rowZeros[row]+=sign;
+			columnZeros[column]+=sign;
+		}
+	}
+
+	void update(final int row,final int column,final T oldValue,final T newValue) {
+		include(row,column,oldValue,-1);
+		include(row,column,newValue,1);
+	}
+
+	void transpose() {
+		T[] save=rowSums; rowSums=columnSums; columnSums=save;
+		save=rowAbsSums; rowAbsSums=columnAbsSums; columnAbsSums=save;
+		int[] saveCounts=rowPositives; rowPositives=columnPositives; columnPositives=saveCounts;
+		saveCounts=rowZeros; rowZeros=columnZeros; columnZeros=saveCounts;
+	}
+
+	private static <X> void permute(final X[] values,final int[] order) {
+		final X[] save=values.clone();
+		for(int k=0;k<values.length;k++) values[k]=save[order[k]];
+	}
+
+	private static void permute(final int[] values,final int[] order) {
+		final int[] save=values.clone();
+		for(int k=0;k<values.length;k++) values[k]=save[order[k]];
+	}
+
+	//rows (columns) found at 'order[k]' have been moved to row (column) 'k', aggregates of opposite lines stay intact
+	void permute(final IndexType iType,final int[] order) {
+		if(iType==IndexType.ROW) {
+			permute(rowSums,order); permute(rowAbsSums,order);
+			permute(rowPositives,order); permute(rowZeros,order);
+		}else {
+			permute(columnSums,order); permute(columnAbsSums,order);
+			permute(columnPositives,order); permute(columnZeros,order);
+		}
+	}
+
+	private static <X> void swap(final X[] values,final int first,final int second) {
+		final X save=values[first]; values[first]=values[second]; values[second]=save;
+	}
+
+	private static void swap(final int[] values,final int first,final int second) {
+		final int save=values[first]; values[first]=values[second]; values[second]=save;
+	}
+
+	void swap(final IndexType iType,final int first,final int second) {
+		if(iType==IndexType.ROW) {
+			swap(rowSums,first,second); swap(rowAbsSums,first,second);
+			swap(rowPositives,first,second); swap(rowZeros,first,second);
+		}else {
+			swap(columnSums,first,second); swap(columnAbsSums,first,second);
+			swap(columnPositives,first,second); swap(columnZeros,first,second);
+		}
+	}
+
+	public T getSum(final IndexType iType,final int index) {
+		return iType==IndexType.ROW?rowSums[index]:columnSums[index];
+	}
+
+	public T getAbsSum(final IndexType iType,final int index) {
+		return iType==IndexType.ROW?rowAbsSums[index]:columnAbsSums[index];
+	}
+
+	public int getPositiveCount(final IndexType iType,final int index) {
+		return iType==IndexType.ROW?rowPositives[index]:columnPositives[index];
+	}
+
+	public int getZeroCount(final IndexType iType,final int index) {
+		return iType==IndexType.ROW?rowZeros[index]:columnZeros[index];
+	}
+
+	/**
+	 * Computes matrix norm in O(dimension)
+	 * @param iType maximum of row sums of absolute values, if {@code ROW}, or column ones, if {@code COLUMN}
+	 * @return matrix norm
+	 */
+	public T getNorm(final IndexType iType) {
+		final T[] sums=iType==IndexType.ROW?rowAbsSums:columnAbsSums;
+		T norm=sums[0];
+		for(int k=1;k<dimension;k++) norm=norm.max(sums[k]);
+		return norm;
+	}
+
+}
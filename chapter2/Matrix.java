@@ -3,27 +3,43 @@ package chapter2;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Array;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.StringJoiner;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 
 import math.Ordinal;
+import math.Summation;
+import sort.DoubleQuickSorter;
+import sort.DoubleSequence;
+import sort.LongQuickSorter;
+import sort.LongSequence;
+import sort.MergeSorter;
+import sort.QuickSelector;
 import sort.QuickSorter;
+import sort.RadixSorter;
 import sort.Sequence;
 import utils.Utensils;
 
@@ -40,6 +56,9 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 
 	public final static int SIDE_COUNT=4;
 	
+	static final int MIN_BAND_CELLS=1<<16;//minimal number of cells processed by one thread in parallel modes
+	static final int TILE=32;//side of square tile, two tiles of references fit in L1 cache
+	
 	private static void checkIndex(final String name,final int index,final int from,final int to) {
 		if(index<from || index>=to) throw new RuntimeException(String.format("index of %s (%d) must be within [%d,%d)",name,index,from,to));
 	}
@@ -75,6 +94,14 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	private final int dimension;
 	private final T[][] data;
 	
+	//number of modifications of data, lazily built indices are valid as long as it stays the same;
+	//it is volatile so that other threads querying indices see the latest count, single writer thread increments it after data is written
+	private transient volatile int modCount;
+	private transient SummedAreaTable<T> sumIndex;
+	private transient LineAggregates<T> aggregates;
+	private transient int contentHash;//sum of hashes of all cells, maintained on element-wise modifications while valid
+	private transient boolean hashValid;
+	
 	@Override
 	public Iterator<Segment> iterator() {
 		return iterator(IndexType.ROW);
@@ -138,7 +165,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		}
 		
 		public void setValue(final T value) {
-			data[row][column]=value;
+			store(row,column,value);
 		}
 		
 		@SuppressWarnings("unchecked")
@@ -212,6 +239,193 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		
 	}
 	
+	/**
+	 * Compact set of positions of matrix backed by bit set of {@code row*dimension+column} codes,
+	 * {@code Position} instances are created only while iterating
+	 */
+	public class PositionSet extends AbstractSet<Position> {
+
+		private final BitSet cells;
+
+		public PositionSet() {
+			cells=new BitSet();
+		}
+
+		public PositionSet(final Collection<? extends Position> positions) {
+			this();
+			addAll(positions);
+		}
+
+		int cellOf(final int row,final int column) {
+			return row*dimension+column;
+		}
+
+		boolean addCell(final int cell) {
+			final boolean absent=!cells.get(cell);
+			cells.set(cell);
+			return absent;
+		}
+
+		//merges cells of band, that is marked in 'band' with offset 'offset', concurrently filled bands are merged one at a time
+		synchronized void addCells(final BitSet band,final int offset) {
+			for(int cell=band.nextSetBit(0);cell>=0;cell=band.nextSetBit(cell+1)) {
+				cells.set(offset+cell);
+			}
+		}
+
+		public boolean add(final int row,final int column) {
+			checkIndex("row",row,0,dimension);
+			checkIndex("column",column,0,dimension);
+			return addCell(cellOf(row,column));
+		}
+
+		@Override public boolean add(final Position position) {
+			return add(position.getRow(),position.getColumn());
+		}
+
+		public boolean contains(final int row,final int column) {
+			return row>=0 && row<dimension && column>=0 && column<dimension && cells.get(cellOf(row,column));
+		}
+
+		@Override public boolean contains(final Object o) {
+			if(o instanceof Matrix.Position) {
+				final Matrix<?>.Position position=(Matrix<?>.Position)o;
+				return contains(position.getRow(),position.getColumn());
+			}else {
+				return false;
+			}
+		}
+
+		@Override public boolean remove(final Object o) {
+			if(contains(o)) {
+				final Matrix<?>.Position position=(Matrix<?>.Position)o;
+				cells.clear(cellOf(position.getRow(),position.getColumn()));
+				return true;
+			}else {
+				return false;
+			}
+		}
+
+		void clearBefore(final int cell) {
+			cells.clear(0,cell);
+		}
+
+		/**
+		 * Returns codes {@code row*dimension+column} of positions in ascending order
+		 * @return sorted array of codes
+		 */
+		public int[] toCells() {
+			final int[] codes=new int[cells.cardinality()];
+			int k=0;
+			for(int cell=cells.nextSetBit(0);cell>=0;cell=cells.nextSetBit(cell+1)) {
+				codes[k++]=cell;
+			}
+			return codes;
+		}
+
+		//checks if 'c' is set of positions of matrix with the same dimension, so that bit sets may be combined directly
+		private boolean compatible(final Collection<?> c) {
+			return c instanceof Matrix.PositionSet && ((Matrix<?>.PositionSet)c).getDimension()==dimension;
+		}
+
+		private int getDimension() {
+			return dimension;
+		}
+
+		@Override public boolean addAll(final Collection<? extends Position> c) {
+			if(compatible(c)) {
+				final int size=size();
+				cells.or(((Matrix<?>.PositionSet)c).cells);
+				return size!=size();
+			}
+			return super.addAll(c);
+		}
+
+		@Override public boolean retainAll(final Collection<?> c) {
+			if(compatible(c)) {
+				final int size=size();
+				cells.and(((Matrix<?>.PositionSet)c).cells);
+				return size!=size();
+			}
+			return super.retainAll(c);
+		}
+
+		@Override public boolean removeAll(final Collection<?> c) {
+			if(compatible(c)) {
+				final int size=size();
+				cells.andNot(((Matrix<?>.PositionSet)c).cells);
+				return size!=size();
+			}
+			return super.removeAll(c);
+		}
+
+		/**
+		 * Creates union of this and passed set leaving both of them intact
+		 * @param other set to unite with
+		 * @return new set
+		 */
+		public PositionSet union(final Set<? extends Position> other) {
+			final PositionSet union=new PositionSet(this);
+			union.addAll(other);
+			return union;
+		}
+
+		/**
+		 * Creates intersection of this and passed set leaving both of them intact
+		 * @param other set to intersect with
+		 * @return new set
+		 */
+		public PositionSet intersection(final Set<?> other) {
+			final PositionSet intersection=new PositionSet(this);
+			intersection.retainAll(other);
+			return intersection;
+		}
+
+		@Override public boolean equals(final Object o) {
+			if(compatible(o instanceof Collection?(Collection<?>)o:null)) {
+				return cells.equals(((Matrix<?>.PositionSet)o).cells);
+			}
+			return super.equals(o);
+		}
+
+		@Override public int size() {
+			return cells.cardinality();
+		}
+
+		@Override public boolean isEmpty() {
+			return cells.isEmpty();
+		}
+
+		@Override public void clear() {
+			cells.clear();
+		}
+
+		@Override public Iterator<Position> iterator() {
+			return new Iterator<Position>() {
+				private int next=cells.nextSetBit(0);
+				private int last=-1;
+
+				@Override public boolean hasNext() {
+					return next>=0;
+				}
+
+				@Override public Position next() {
+					if(next<0) throw new NoSuchElementException();
+					last=next;
+					next=cells.nextSetBit(next+1);
+					return new Position(last/dimension,last%dimension);
+				}
+
+				@Override public void remove() {
+					if(last<0) throw new IllegalStateException();
+					cells.clear(last);
+					last=-1;
+				}
+			};
+		}
+
+	}
+
 	/**
 	 * Represents segment of row (if {@code indexType} equals to {@code IndexType.ROW}) or 
 	 * column (if {@code indexType} equals to {@code IndexType.COLUMN}) at {@code index} of outer matrix instance
@@ -264,9 +478,9 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		
 		private void setValue(final int k,final T value) {
 			if(indexType==IndexType.COLUMN) {
-				data[k][index]=value;
+				store(k,index,value);
 			}else{
-				data[index][k]=value;
+				store(index,k,value);
 			}
 		}
 		
@@ -301,6 +515,14 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		}
 		
 		public T sum() {
+			if(aggregates!=null && start==0 && finish==dimension) {//whole row or column
+				return aggregates.getSum(indexType,index);
+			}
+			if(sumIndex!=null) {//take sum from index in O(1)
+				return indexType==IndexType.COLUMN?
+						sumIndex.sum(start,index,finish,index+1):
+							sumIndex.sum(index,start,index+1,finish);
+			}
 			return sum(IDENTITY_OPERATOR);
 		}
 		
@@ -317,10 +539,63 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 			return sum().divide(length());
 		}
 		
+		/**
+		 * Sums keys of elements with compensation of rounding errors, see {@link Summation}
+		 * @param key maps element to double, e.g. {@code Real::doubleValue}
+		 * @return sum of keys
+		 */
+		public double compensatedSum(final ToDoubleFunction<? super T> key) {
+			return Summation.sum(length(),k->key.applyAsDouble(getValue(start+k)));
+		}
+		
+		public double compensatedAverage(final ToDoubleFunction<? super T> key) {
+			return compensatedSum(key)/length();
+		}
+		
 		public int length() {
 			return finish-start;
 		}
 		
+		private T[] toArray() {
+			@SuppressWarnings("unchecked")
+			final T[] values=(T[])Array.newInstance(Ordinal.class,length());
+			int index=0;
+			for(final T value:this) values[index++]=value;
+			return values;
+		}
+		
+		/**
+		 * Finds k-th smallest element of segment without sorting it
+		 * @param k rank of element starting with 1
+		 * @return k-th smallest element
+		 */
+		public T getKthSmallest(final int k) {
+			return kthSmallest(toArray(),k);
+		}
+		
+		/**
+		 * Collects {@code count} greatest (or smallest) elements of segment
+		 * @param count number of elements to collect
+		 * @param maximum collects greatest elements if {@code true}, smallest otherwise
+		 * @return elements ordered from the most extreme one
+		 */
+		public List<T> topK(final int count,final boolean maximum) {
+			return Matrix.this.topK(toArray(),count,maximum);
+		}
+		
+		/**
+		 * Finds percentile of segment elements by nearest-rank method
+		 * @param percent within [0,100]
+		 * @return least element that is not less than {@code percent} percents of elements
+		 */
+		public T getPercentile(final double percent) {
+			return percentile(toArray(),percent);
+		}
+		
+		public T getMedian() {
+			return getPercentile(50);
+		}
+		
 		/**
 		* Scans segment and collects positions of extremum value within the segment
 		* @param extremums of collected positions from previous iteration
@@ -563,6 +838,16 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		data=allocateData(dimension);
 	}
 	
+	/**
+	 * Creates matrix that takes ownership of passed square array of rows
+	 * @param data rows of matrix, all of them must be fully initialized
+	 */
+	Matrix(final T[][] data) {
+		checkDimension(data.length);
+		this.dimension=data.length;
+		this.data=data;
+	}
+	
 	/**
 	 * Creates square matrix and fills it with random values within [-dimension..dimension]
 	 * @param <X> type of {@code initializer} argument produced by {@code producer}
@@ -629,12 +914,28 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @param processor combines original matrix element and extra parameter to produce new matrix element
 	 */
 	public Matrix(final Matrix<T> org, final Function<Segment,T> accum, final BiFunction<T,T,T> processor) {
-		this(org);
-		for(final Segment row:this) {
-			final T accumulated=accum.apply(row);
-			for(final ListIterator<T> i=row.listIterator();i.hasNext();)
-				i.set(processor.apply(i.next(), accumulated));
-		}
+		this(org,accum,processor,false);
+	}
+	
+	/**
+	 * Creates new matrix by applying {@code processor} to every element of {@code org} and result of {@code rowAccumulator} for its row.
+	 * Rows are independent, so new matrix is filled directly without copying {@code org} beforehand
+	 * @param org matrix to process
+	 * @param accum accumulates elements of passed row of {@code org}
+	 * @param processor combines original matrix element and extra parameter to produce new matrix element
+	 * @param parallel processes bands of rows concurrently if {@code true}
+	 */
+	public Matrix(final Matrix<T> org, final Function<Segment,T> accum, final BiFunction<T,T,T> processor,final boolean parallel) {
+		this(org.dimension);
+		processInBands(parallel,(from,to)->{
+			for(int row=from;row<to;row++) {
+				final T accumulated=accum.apply(org.new Segment(IndexType.ROW,row));
+				final T[] source=org.data[row], destination=data[row];
+				for(int column=0;column<dimension;column++) {
+					destination[column]=processor.apply(source[column],accumulated);
+				}
+			}
+		});
 	}
 	
 	/**
@@ -684,7 +985,115 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	}
 	
 	public void set(final int row,final int column,final T value) {
+		store(row,column,value);
+	}
+	
+	/**
+	 * Enables index of sums that answers {@link #getSum(int, int, int, int)}, {@code Segment.sum()} and {@code Segment.average()} in O(1).
+	 * Index takes (dimension+1)^2 elements and is rebuilt in parallel on first query after matrix has been modified 
+	 */
+	public void enableSumIndex() {
+		if(sumIndex==null) sumIndex=new SummedAreaTable<T>(this);
+	}
+	
+	public void disableSumIndex() {
+		sumIndex=null;
+	}
+	
+	/**
+	 * Computes sum of rectangle within rows [fromRow,toRow) and columns [fromColumn,toColumn)
+	 * @return sum of elements, taken from index if it's enabled
+	 */
+	public T getSum(final int fromRow,final int fromColumn,final int toRow,final int toColumn) {
+		checkIndex("rectangle finish row",toRow,1,dimension+1);
+		checkIndex("rectangle start row",fromRow,0,toRow);
+		checkIndex("rectangle finish column",toColumn,1,dimension+1);
+		checkIndex("rectangle start column",fromColumn,0,toColumn);
+		if(sumIndex!=null) return sumIndex.sum(fromRow,fromColumn,toRow,toColumn);
+		T accum=data[0][0].zero();
+		for(int row=fromRow;row<toRow;row++) {
+			for(int column=fromColumn;column<toColumn;column++) {
+				accum=accum.add(data[row][column]);
+			}
+		}
+		return accum;
+	}
+	
+	/**
+	 * Enables row and column aggregates (sums, sums of absolute values, numbers of positive and zero elements),
+	 * that are updated on every modification of matrix, so that {@link #getNorm(IndexType)} takes O(dimension) and sums of whole rows and columns take O(1)
+	 * @return aggregates of matrix
+	 */
+	public LineAggregates<T> enableAggregates() {
+		if(aggregates==null) aggregates=new LineAggregates<T>(this);
+		return aggregates;
+	}
+	
+	public void disableAggregates() {
+		aggregates=null;
+	}
+	
+	/**
+	 * Returns aggregates of rows and columns
+	 * @return aggregates or {@code null} if they aren't enabled
+	 */
+	public LineAggregates<T> getAggregates() {
+		return aggregates;
+	}
+	
+	int getModCount() {
+		return modCount;
+	}
+	
+	/**
+	 * Stores single element, every element-wise modification of matrix data passes here
+	 */
+	private void store(final int row,final int column,final T value) {
+		if(aggregates!=null) aggregates.update(row,column,data[row][column],value);
+		if(hashValid) contentHash+=cellHash(row,column,value)-cellHash(row,column,data[row][column]);
 		data[row][column]=value;
+		modCount++;
+	}
+	
+	/**
+	 * Registers bulk modification of matrix data, so that lazily built indices and content hash get stale
+	 */
+	private void modified() {
+		modCount++;
+		hashValid=false;
+	}
+	
+	//mixes position of cell with hash of its value, so that hash of matrix depends on arrangement of elements
+	private int cellHash(final int row,final int column,final T value) {
+		int hash=(row*dimension+column)*0x9E3779B9+value.hashCode();
+		hash^=hash>>>16;
+		hash*=0x85EBCA6B;
+		hash^=hash>>>13;
+		hash*=0xC2B2AE35;
+		return hash^(hash>>>16);
+	}
+	
+	/**
+	 * Computes hash of matrix content once (by bands of rows in parallel for large matrices)
+	 * and keeps it up to date on element-wise modifications afterwards, so that matrices may serve as keys of hash maps.
+	 * Bulk operations (sorting, shifting, rotation, processing) invalidate it until next call
+	 */
+	@Override public int hashCode() {
+		if(!hashValid) {
+			final AtomicInteger hash=new AtomicInteger();
+			processInBands(dimension*dimension>MIN_BAND_CELLS,(from,to)->{
+				int bandHash=0;
+				for(int row=from;row<to;row++) {
+					for(int column=0;column<dimension;column++) {
+						bandHash+=cellHash(row,column,data[row][column]);
+					}
+				}
+				hash.addAndGet(bandHash);
+			});
+			contentHash=hash.get();
+			hashValid=true;
+		}
+		return 31*dimension+contentHash;
 	}
 	
 	/**
@@ -712,26 +1121,37 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	}
 	
 	@Override public String toString() {
-		final StringJoiner matrixJoiner=new StringJoiner("","{\n","}\n");
-		for(final T[] row:data) {
-			final StringJoiner rowJoiner=new StringJoiner(",");
-			for(final T value:row) {
-				rowJoiner.add(String.format("%10s", value.toString()));
-			}
-			rowJoiner.add("\n");
-			matrixJoiner.merge(rowJoiner);
+		final StringBuilder builder=new StringBuilder();
+		try {
+			writeTo(builder);
+		} catch (IOException e) {//never thrown by StringBuilder
+			throw new RuntimeException(e);
 		}
-		return matrixJoiner.toString();
+		return builder.toString();
 	}
 	
+	/**
+	 * Writes matrix row by row in the same format as {@link #toString()}, use {@link MatrixWriter} to write part of matrix or its summary
+	 * @param out destination, e.g. {@code Writer}
+	 * @throws IOException if writing fails
+	 */
+	public void writeTo(final Appendable out) throws IOException {
+		new MatrixWriter().write(this,out);
+	}
+	
+	/**
+	 * Compares content of matrices, returns immediately if hashes of both matrices have been computed and differ
+	 */
 	@Override public boolean equals(Object o) {
+		if(o==this) return true;
 		if(o instanceof Matrix) {
 			@SuppressWarnings("unchecked")
 			Matrix<T> m=(Matrix<T>)o;
 			if(this.dimension==m.dimension) {
+				if(this.hashValid && m.hashValid && this.contentHash!=m.contentHash) return false;
 				boolean equal=true;
 				for(int row=0;row<this.data.length && equal;row++) {
-					equal=equal && Arrays.deepEquals(this.data[row], m.data[row]);
+					equal=equal && Arrays.equals(this.data[row], m.data[row]);
 				}
 				return equal;
 			}else return false;
@@ -739,17 +1159,52 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		else return false;
 	}
 	
+	/**
+	 * Collects positions where elements of this and {@code other} matrices differ
+	 * @param other matrix of the same dimension to compare with
+	 * @param parallel compares bands of rows concurrently if {@code true}
+	 * @return compact set of positions of differing elements
+	 */
+	public PositionSet diff(final Matrix<T> other,final boolean parallel) {
+		if(dimension!=other.dimension) throw new RuntimeException(String.format("dimensions of matrices (%d and %d) should be equal",dimension,other.dimension));
+		final PositionSet positions=new PositionSet();
+		processInBands(parallel,(from,to)->{
+			final BitSet cells=new BitSet();
+			for(int row=from;row<to;row++) {
+				final T[] line=data[row], otherLine=other.data[row];
+				if(line==otherLine) continue;
+				for(int column=0;column<dimension;column++) {
+					if(!Objects.equals(line[column],otherLine[column])) cells.set((row-from)*dimension+column);
+				}
+			}
+			positions.addCells(cells,from*dimension);
+		});
+		return positions;
+	}
+	
+	public PositionSet diff(final Matrix<T> other) {
+		return diff(other,false);
+	}
+	
 	/**
 	* Creates list of positions of elements that are equal to {@code checkValue}
 	* @param checkValue value to check
 	* @return list of positions of elements that are equal to {@code checkValue}
 	*/
 	public Set<Position> getEqualTo(final T checkValue){
-		Set<Position> occurences=new HashSet<>();
-		for(final Segment segment:this){
-			for(final Segment.SegmentIterator i=segment.listIterator();i.hasNext();){
-				final Position p=i.nextPosition();
-				if(p.getValue().equals(checkValue)) occurences.add(p);
+		return getEqualToSet(checkValue);
+	}
+	
+	/**
+	* Creates compact set of positions of elements that are equal to {@code checkValue}
+	* @param checkValue value to check
+	* @return set of positions of elements that are equal to {@code checkValue}
+	*/
+	public PositionSet getEqualToSet(final T checkValue){
+		final PositionSet occurences=new PositionSet();
+		for(int row=0;row<dimension;row++) {
+			for(int column=0;column<dimension;column++) {
+				if(data[row][column].equals(checkValue)) occurences.addCell(row*dimension+column);
 			}
 		}
 		return occurences;
@@ -765,17 +1220,34 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		else sortByRow(index);
 	}
 
+	/**
+	 * Stably sorts matrix on several keys in one pass, every next key breaks ties of previous ones.
+	 * Order is computed by parallel merge sort and applied to matrix afterwards
+	 * @param iType {@code COLUMN} if rows should be ordered by given columns, {@code ROW} if columns should be ordered by given rows
+	 * @param indices columns or rows that contain sort keys in order of significance
+	 */
+	public void sort(final IndexType iType,final int... indices) {
+		if(indices.length==0) throw new RuntimeException("at least one column or row to sort on should be given");
+		for(final int index:indices) checkIndex("row/column",index,0,dimension);
+		final int[] order=MergeSorter.order(dimension,(first,second)->{
+			int comparison=0;
+			for(int k=0;k<indices.length && comparison==0;k++) {
+				comparison=iType==IndexType.COLUMN?
+						data[first][indices[k]].compareTo(data[second][indices[k]]):
+							data[indices[k]][first].compareTo(data[indices[k]][second]);
+			}
+			return comparison;
+		},true);
+		if(iType==IndexType.COLUMN) permuteRows(order);
+		else permuteColumns(order);
+	}
+
 	/**
 	 *  Sorts matrix by given column
 	 * @param column number of column to sort matrix by
 	 */
 	public void sortByColumn(final int column) {
-		Arrays.sort(data, new Comparator<T[]>() {
-			@Override
-			public int compare(final T[] o1, final T[] o2) {
-				return o1[column].compareTo(o2[column]);
-			}	
-		});
+		permuteRows(MergeSorter.order(dimension,(first,second)->data[first][column].compareTo(data[second][column]),false));
 	}
 	
 	private void swap(final int row,final int col) {
@@ -788,12 +1260,68 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * Transforms matrix by swapping rows and columns
 	 */
 	public void transpose() {
-		for(int i=0;i<dimension-1;i++) {
-			for(int j=i+1;j<dimension;j++) {
-				swap(i,j);
+		transpose(false);
+	}
+	
+	/**
+	 * Transforms matrix by swapping rows and columns tile by tile, so that both tiles being swapped stay in cache
+	 * @param parallel transposes tiles in parallel if {@code true}
+	 */
+	public void transpose(final boolean parallel) {
+		modified();
+		if(aggregates!=null) aggregates.transpose();
+		final int tileCount=(dimension+TILE-1)/TILE;
+		final int pairCount=(tileCount+1)/2;
+		//tile row 'tile' contains (tileCount-tile) tiles above diagonal, so rows 'tile' and 'tileCount-1-tile' are paired to balance bands 
+		final Utensils.BandProcessor processor=(from,to)->{
+			for(int tile=from;tile<to;tile++) {
+				transposeTileRow(tile,tileCount);
+				if(tileCount-1-tile!=tile) transposeTileRow(tileCount-1-tile,tileCount);
+			}
+		};
+		if(parallel) Utensils.processInBands(pairCount,Math.max(1,MIN_BAND_CELLS/(TILE*dimension)),processor);
+		else processor.process(0,pairCount);
+	}
+	
+	//swaps every tile of tile row 'tileRow' on and above diagonal with its mirror below diagonal
+	private void transposeTileRow(final int tileRow,final int tileCount) {
+		final int rowFrom=tileRow*TILE, rowTo=Math.min(rowFrom+TILE,dimension);
+		for(int tileColumn=tileRow;tileColumn<tileCount;tileColumn++) {
+			final int columnFrom=tileColumn*TILE, columnTo=Math.min(columnFrom+TILE,dimension);
+			for(int row=rowFrom;row<rowTo;row++) {
+				for(int column=Math.max(columnFrom,row+1);column<columnTo;column++) {
+					swap(row,column);
+				}
 			}
 		}
 	}
+	
+	//reverses order of rows by swapping references
+	private void reverseRows() {
+		for(int row=0;row<dimension/2;row++) {
+			swapRows(row,dimension-1-row);
+		}
+	}
+	
+	//reverses order of columns by reversing every row in place
+	private void reverseColumns(final boolean parallel) {
+		modified();
+		if(aggregates!=null) {
+			final int[] reversed=new int[dimension];
+			for(int column=0;column<dimension;column++) reversed[column]=dimension-1-column;
+			aggregates.permute(IndexType.COLUMN,reversed);
+		}
+		processInBands(parallel,(from,to)->{
+			for(int row=from;row<to;row++) {
+				final T[] line=data[row];
+				for(int left=0,right=dimension-1;left<right;left++,right--) {
+					final T save=line[left];
+					line[left]=line[right];
+					line[right]=save;
+				}
+			}
+		});
+	}
 
 	/**
 	 *  Sorts matrix by given row.
@@ -815,8 +1343,6 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		new QuickSorter<T>(Comparator.naturalOrder()).
 		sort(new Sequence<T>() {
 			
-			private final List<T> cache=new ArrayList<>(dimension);
-			
 			@Override public int size() {
 				return dimension;
 			}
@@ -828,9 +1354,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 
 			@Override
 			public void swap(final int first, final int second) {
-				getColumn(first,cache);
-				copyColumn(first,second);
-				setColumn(second,cache);
+				swapColumns(first,second);
 			}
 		});
 	}
@@ -843,8 +1367,6 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		new QuickSorter<T>(Comparator.naturalOrder()).
 		sort(new Sequence<T>() {
 			
-			private final List<T> cache=new ArrayList<T>(dimension);
-			
 			@Override public int size() {
 				return dimension;
 			}
@@ -856,9 +1378,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 
 			@Override
 			public void swap(final int first, final int second) {
-				getRow(first,cache);
-				copyRow(first,second);
-				setRow(second,cache);
+				swapRows(first,second);
 			}
 		});
 	}
@@ -876,6 +1396,96 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		}
 	}
 
+	/**
+	 * Quicksorts matrix by row or column on primitive keys, so keys are neither boxed nor compared via generic comparator
+	 * @param iType {@code COLUMN} if matrix should be sorted by column, {@code ROW} otherwise
+	 * @param index column or row index to sort on
+	 * @param key extracts primitive key from element, e.g. {@code Real::doubleValue}
+	 */
+	public void quickSort(final IndexType iType,final int index,final ToDoubleFunction<? super T> key) {
+		checkIndex("row/column",index,0,dimension);
+		new DoubleQuickSorter(DoubleSequence.NATURAL).sort(new DoubleSequence() {
+
+			@Override public int size() {
+				return dimension;
+			}
+
+			@Override public double getKey(final int k) {
+				return key.applyAsDouble(iType==IndexType.COLUMN?data[k][index]:data[index][k]);
+			}
+
+			@Override public void swap(final int first, final int second) {
+				if(iType==IndexType.COLUMN) swapRows(first,second);
+				else swapColumns(first,second);
+			}
+		});
+	}
+
+	/**
+	 * Sorts matrix by row or column on integer keys in linear time.
+	 * Range of keys is detected automatically and rows or columns are rearranged by one bulk permutation afterwards
+	 * @param iType {@code COLUMN} if matrix should be sorted by column, {@code ROW} otherwise
+	 * @param index column or row index to sort on
+	 * @param key extracts integer key from element, e.g. {@code Cardinal::longValue}
+	 */
+	public void radixSort(final IndexType iType,final int index,final ToLongFunction<? super T> key) {
+		checkIndex("row/column",index,0,dimension);
+		final int[] order=new RadixSorter().order(dimension,k->key.applyAsLong(iType==IndexType.COLUMN?data[k][index]:data[index][k]));
+		if(iType==IndexType.COLUMN) permuteRows(order);
+		else permuteColumns(order);
+	}
+
+	/**
+	 * Rearranges rows so that row found at {@code order[k]} is moved to row {@code k}
+	 */
+	private void permuteRows(final int[] order) {
+		modified();
+		if(aggregates!=null) aggregates.permute(IndexType.ROW,order);
+		final T[][] save=data.clone();
+		for(int row=0;row<dimension;row++) {
+			data[row]=save[order[row]];
+		}
+	}
+
+	/**
+	 * Rearranges columns so that column found at {@code order[k]} is moved to column {@code k}
+	 */
+	private void permuteColumns(final int[] order) {
+		modified();
+		if(aggregates!=null) aggregates.permute(IndexType.COLUMN,order);
+		final T[] save=data[0].clone();
+		for(final T[] row:data) {
+			System.arraycopy(row,0,save,0,dimension);
+			for(int column=0;column<dimension;column++) {
+				row[column]=save[order[column]];
+			}
+		}
+	}
+
+	/**
+	 * Interchanges two rows by swapping references to their data
+	 */
+	private void swapRows(final int first,final int second) {
+		modified();
+		if(aggregates!=null) aggregates.swap(IndexType.ROW,first,second);
+		final T[] save=data[first];
+		data[first]=data[second];
+		data[second]=save;
+	}
+
+	/**
+	 * Interchanges two columns element by element
+	 */
+	private void swapColumns(final int first,final int second) {
+		modified();
+		if(aggregates!=null) aggregates.swap(IndexType.COLUMN,first,second);
+		for(final T[] row:data) {
+			final T save=row[first];
+			row[first]=row[second];
+			row[second]=save;
+		}
+	}
+
 	/**
 	 * Finds index of source column or row by shifting {@code step} paces in given direction {@direct} from destination column or row
 	 * @param destination index of destination column or row
@@ -904,6 +1514,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @param sourceColumn index of source column
 	 */
 	private void copyColumn(final int destColumn,final int sourceColumn) {
+		modified();
 		for(int row=0;row<dimension;row++) {
 			data[row][destColumn]=data[row][sourceColumn];
 		}
@@ -915,6 +1526,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @param sourceRow index of source row
 	 */
 	private void copyRow(final int destRow,final int sourceRow) {
+		modified();
 		System.arraycopy(data[sourceRow], 0, data[destRow], 0, dimension);
 	}
 	
@@ -1002,6 +1614,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @param columnData data to replace column
 	 */
 	private void setColumn(final int column,final List<T> columnData) {
+		modified();
 		for(int row=0;row<dimension;row++) {
 			data[row][column]=columnData.get(row);
 		}
@@ -1013,6 +1626,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @param rowData data to replace row
 	 */
 	private void setRow(final int row,final List<T> rowData) {
+		modified();
 		int col=0;
 		for(final T value:rowData) {
 			data[row][col++]=value;
@@ -1037,6 +1651,8 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @param step number of paces to shift matrix data
 	 */
 	public void shift(final IndexType iType,final Direction direct,final int step) {
+		final LineAggregates<T> saved=aggregates;
+		aggregates=null;//lines are moved as a whole, so aggregates are permuted afterwards instead of element-wise updates
 		int destIndex=0;
 		int count=dimension;
 		do{
@@ -1058,6 +1674,12 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 			}
 		}while(count>0);
 		
+		aggregates=saved;
+		if(aggregates!=null) {
+			final int[] order=new int[dimension];
+			for(int index=0;index<dimension;index++) order[index]=getAdjacentIndex(index,direct,step);
+			aggregates.permute(iType==IndexType.COLUMN?IndexType.COLUMN:IndexType.ROW,order);
+		}
 	}
 	
 	/**
@@ -1071,6 +1693,29 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		else return getLargestColumnContinuouosBlock(ascending);
 	}
 	
+	/**
+	 * Finds biggest continuous block of numbers splitting rows or columns into chunks scanned concurrently
+	 * @param iType if {@code ROW} seek along every row, if {@code COLUMN} seek along every column
+	 * @param ascending numbers must be arranged in ascending order, if {@code true}, otherwise in descending order
+	 * @param parallel scan chunks concurrently, if {@code true}
+	 * @return the first of largest continuous blocks of numbers
+	 */
+	public Segment getLargestContinuousBlock(final IndexType iType,final boolean ascending,final boolean parallel) {
+		return new ContinuousBlockFinder<T>(this,iType,ascending,null).find(parallel);
+	}
+	
+	/**
+	 * Finds biggest continuous block of numbers comparing primitive keys of elements instead of elements themselves
+	 * @param iType if {@code ROW} seek along every row, if {@code COLUMN} seek along every column
+	 * @param ascending keys must be arranged in ascending order, if {@code true}, otherwise in descending order
+	 * @param key extracts primitive key from element, e.g. {@code Real::doubleValue}
+	 * @param parallel scan chunks concurrently, if {@code true}
+	 * @return the first of largest continuous blocks of numbers
+	 */
+	public Segment getLargestContinuousBlock(final IndexType iType,final boolean ascending,final ToDoubleFunction<? super T> key,final boolean parallel) {
+		return new ContinuousBlockFinder<T>(this,iType,ascending,key).find(parallel);
+	}
+	
 	/**
 	 * Finds biggest continuous block of numbers along column
 	 * @param ascending numbers must be arranged in ascending order, if {@code true}, otherwise in descending order
@@ -1153,12 +1798,55 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		return segments;
 	}
 	
+	/**
+	 * Computes compensated sums of keys of all rows or columns, every sum is equal to {@link Segment#compensatedSum} of the line regardless of {@code parallel}
+	 * @param iType sums rows if {@code ROW}, columns otherwise
+	 * @param key maps element to double, e.g. {@code Real::doubleValue}
+	 * @param parallel sums bands of lines concurrently if {@code true}
+	 * @return array of sums
+	 */
+	public double[] getCompensatedSums(final IndexType iType,final ToDoubleFunction<? super T> key,final boolean parallel) {
+		final double[] sums=new double[dimension];
+		processInBands(parallel,(from,to)->{
+			for(int line=from;line<to;line++) {
+				final int index=line;
+				sums[line]=iType==IndexType.COLUMN?
+						Summation.sum(dimension,k->key.applyAsDouble(data[k][index])):
+							Summation.sum(dimension,k->key.applyAsDouble(data[index][k]));
+			}
+		});
+		return sums;
+	}
+	
+	/**
+	 * Computes norm as maximal compensated sum of absolute values of keys of rows or columns
+	 */
+	public double getCompensatedNorm(final IndexType iType,final ToDoubleFunction<? super T> key,final boolean parallel) {
+		double norm=0;
+		for(final double sum:getCompensatedSums(iType,value->Math.abs(key.applyAsDouble(value)),parallel)) {
+			norm=Math.max(norm,sum);
+		}
+		return norm;
+	}
+	
+	/**
+	 * Sums keys of all elements as compensated sum of compensated row sums, so result is reproducible regardless of {@code parallel}
+	 */
+	public double getCompensatedSum(final ToDoubleFunction<? super T> key,final boolean parallel) {
+		return Summation.sum(getCompensatedSums(IndexType.ROW,key,parallel));
+	}
+	
+	public double getCompensatedAverage(final ToDoubleFunction<? super T> key,final boolean parallel) {
+		return getCompensatedSum(key,parallel)/((double)dimension*dimension);
+	}
+	
 	/**
 	 * Computes matrix norm
 	 * @param iType find maximum value for rows, if {@code ROW}, or for columns, if {@code COLUMN}
 	 * @return matrix norm
 	 */
 	public T getNorm(final IndexType iType) {
+		if(aggregates!=null) return aggregates.getNorm(iType);
 		final Iterator<Segment> i=iterator(iType);
 		if(i.hasNext()) {
 			T norm=i.next().sum(Ordinal::abs);
@@ -1171,33 +1859,50 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		}
 	}
 	
+	/**
+	 * Computes requested statistics of matrix in one pass
+	 * @param statistics statistics to compute, all of them if none given
+	 * @return computed statistics
+	 */
+	public MatrixStatistics<T> getStatistics(final MatrixStatistics.Statistic... statistics) {
+		return statistics.length==0?
+				new MatrixStatistics<T>(this):
+					new MatrixStatistics<T>(this,EnumSet.copyOf(Arrays.asList(statistics)));
+	}
+	
 	/**
 	 * Rotates matrix in specified direction {@code rotation} by given {@code angle} 
 	 * @param rotation rotates clockwise if {@code CLOCKWISE} or {@code COUNTERCLOCKWISE} otherwise
 	 * @param angle of rotation (either 0,90,180 or 270)
 	 */
 	public void rotate(final Rotation rotation,final Angle angle) {
-		for(int depth=0;depth<dimension/2;depth++) {//for every row/column from outside to center of matrix
-			Segment initialSegment=new Segment(IndexType.ROW,depth,depth);
-			int turnCount=SIDE_COUNT-1;
-			do {
-				List<T> initialSegmentData=initialSegment.save();
-				Segment destination=initialSegment;
-				Segment source;
-				while(turnCount>0 && 
-						!initialSegment.equals(source=destination.getNextSegment(rotation, angle.getOpposite(), depth))) {//find source segment 
-					destination.copy(source);//and copy it to destination segment  
-					destination=source;//move to next segment
-					turnCount--;
-				};
-				destination.restore(initialSegmentData);
-				turnCount--;
-				if(turnCount>0) {//if angle.ordinal() is even, take adjacent quadrant and repeat until sideCount>0
-					initialSegment=initialSegment.getNextSegment(rotation.getOpposite(), Angle._90, depth);
-				}
-				
-			}while(turnCount>0);
-
+		rotate(rotation,angle,false);
+	}
+	
+	/**
+	 * Rotates matrix in specified direction {@code rotation} by given {@code angle}.
+	 * Rotation by 90 degrees is done as tiled transposition followed by reversal of row order (counterclockwise) or of every row (clockwise), 
+	 * rotation by 180 degrees reverses both
+	 * @param rotation rotates clockwise if {@code CLOCKWISE} or {@code COUNTERCLOCKWISE} otherwise
+	 * @param angle of rotation (either 0,90,180 or 270)
+	 * @param parallel transposes tiles and reverses rows in parallel if {@code true}
+	 */
+	public void rotate(final Rotation rotation,final Angle angle,final boolean parallel) {
+		final int quarters=rotation==Rotation.COUNTERCLOCKWISE?angle.ordinal():(SIDE_COUNT-angle.ordinal())%SIDE_COUNT;//counterclockwise turns
+		switch(quarters) {
+		case 1:
+			transpose(parallel);
+			reverseRows();
+			break;
+		case 2:
+			reverseRows();
+			reverseColumns(parallel);
+			break;
+		case 3:
+			transpose(parallel);
+			reverseColumns(parallel);
+			break;
+		default://rotation by 0 degrees leaves matrix intact
 		}
 	}
 	
@@ -1237,6 +1942,41 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 		return accum;	
 	}
 	
+	/**
+	 * Computes determinant in O(dimension^3) operations by fraction-free Gaussian (Bareiss) elimination:
+	 * every division is exact, so result is exact for integer ({@code Cardinal}) and modular ({@code ModInt}) elements
+	 * @return determinant of square matrix
+	 */
+	public T getDeterminantByElimination() {
+		final T zero=data[0][0].zero();
+		final T[][] rows=allocateData(dimension);
+		for(int row=0;row<dimension;row++) {
+			System.arraycopy(data[row],0,rows[row],0,dimension);
+		}
+		boolean negative=false;
+		T previous=null;//pivot of previous step, 1 initially
+		for(int pivot=0;pivot<dimension-1;pivot++) {
+			if(rows[pivot][pivot].compareTo(zero)==0) {//take row with non-zero element in pivot column
+				int row=pivot+1;
+				while(row<dimension && rows[row][pivot].compareTo(zero)==0) row++;
+				if(row==dimension) return zero;
+				final T[] save=rows[pivot]; rows[pivot]=rows[row]; rows[row]=save;
+				negative=!negative;
+			}
+			final T[] pivotRow=rows[pivot];
+			for(int row=pivot+1;row<dimension;row++) {
+				final T[] line=rows[row];
+				for(int column=pivot+1;column<dimension;column++) {
+					final T value=line[column].multiply(pivotRow[pivot]).subtract(line[pivot].multiply(pivotRow[column]));
+					line[column]=previous==null?value:value.divide(previous);
+				}
+			}
+			previous=pivotRow[pivot];
+		}
+		final T determinant=rows[dimension-1][dimension-1];
+		return negative?determinant.negate():determinant;
+	}
+	
 	/**
 	 * Non-recursively computes determinant of square matrix
 	 * @return determinant of square matrix
@@ -1372,11 +2112,44 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @return processed matrix
 	 */
 	public Matrix<T> process(final Function<T,T> processor){
-		for(final Segment segment:this) {
-			for(final Segment.SegmentIterator i=segment.listIterator();i.hasNext();) {
-				i.set(processor.apply(i.next()));
+		return process(processor,false);
+	}
+	
+	/**
+	 * Processes every item of matrix by given {@code processor} writing results directly into rows
+	 * @param processor processing method reference, must be safe to call concurrently in parallel mode
+	 * @param parallel processes bands of rows in common fork-join pool if {@code true}
+	 * @return processed matrix
+	 */
+	public Matrix<T> process(final Function<T,T> processor,final boolean parallel){
+		processInBands(parallel,(from,to)->processRows(processor,from,to));
+		return processed();
+	}
+	
+	/**
+	 * Processes every item of matrix by given {@code processor} running bands of rows by {@code executor} 
+	 * @param processor processing method reference, must be safe to call concurrently
+	 * @param executor runs bands of rows, method returns when all of them are completed
+	 * @return processed matrix
+	 */
+	public Matrix<T> process(final Function<T,T> processor,final Executor executor){
+		Utensils.processInBands(dimension,Math.max(1,MIN_BAND_CELLS/dimension),(from,to)->processRows(processor,from,to),executor);
+		return processed();
+	}
+	
+	private void processRows(final Function<T,T> processor,final int from,final int to) {
+		for(int row=from;row<to;row++) {
+			final T[] line=data[row];
+			for(int column=0;column<dimension;column++) {
+				line[column]=processor.apply(line[column]);
 			}
 		}
+	}
+	
+	//all elements have been replaced bypassing 'store', so aggregates are recomputed
+	private Matrix<T> processed() {
+		modified();
+		if(aggregates!=null) aggregates.reset(this);
 		return this;
 	}
 	
@@ -1386,12 +2159,30 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	* @return list of extremums
 	*/
 	public Set<Position> getExtremums(final boolean maximum) {
+		return getExtremumSet(maximum);
+	}
+	
+	/**
+	* Collects positions of extremums within the whole matrix into compact set
+	* @param maximum collect maximums if {@code true} or minimums if {@code false}
+	* @return set of extremums
+	*/
+	public PositionSet getExtremumSet(final boolean maximum) {
 		checkDimension(dimension);
-		final Set<Position> extremums=new HashSet<>();
-		extremums.add(new Position(0, 0));
-		for(final Segment segment:this) {
-			segment.getExtremumList(extremums, maximum);
+		final PositionSet extremums=new PositionSet();
+		T extremum=data[0][0];
+		int start=0;//cell of first occurrence of current extremum, positions of previous extremums precede it
+		for(int row=0;row<dimension;row++) {
+			for(int column=0;column<dimension;column++) {
+				final int comparison=data[row][column].compareTo(extremum);
+				if(maximum?comparison>0:comparison<0) {//new extremum found
+					extremum=data[row][column];
+					start=row*dimension+column;
+				}
+				if(comparison==0 || start==row*dimension+column) extremums.addCell(row*dimension+column);
+			}
 		}
+		extremums.clearBefore(start);
 		return extremums;
 	}
 	
@@ -1402,7 +2193,7 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @return list of extremums
 	 */
 	public Set<Position> getExtremumsForEachSegment(final IndexType iType,final boolean maximum) {
-		final Set<Position> extremums=new HashSet<>();
+		final Set<Position> extremums=new PositionSet();
 		for(final Iterator<Segment> i=iterator(iType);i.hasNext();) {
 			extremums.addAll(i.next().getExtremums(maximum));
 		}
@@ -1414,10 +2205,126 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @return set of positions where saddle points located
 	 */
 	public Set<Position> getSaddlePoints(){
-		Set<Position> minimums=getExtremumsForEachSegment(IndexType.ROW,false);
-		Set<Position> maximums=getExtremumsForEachSegment(IndexType.COLUMN,true);
-		minimums.retainAll(maximums);
-		return minimums;
+		return getSaddlePointSet(false);
+	}
+
+	/**
+	 * Fetches saddle points by computing row minimums and column maximums in one pass and collecting matching elements in another one.
+	 * All tied minimums and maximums are taken into account, only O(dimension) extra memory per band of rows is used
+	 * @param parallel process bands of rows concurrently, if {@code true}
+	 * @return compact set of positions where saddle points located
+	 */
+	public PositionSet getSaddlePointSet(final boolean parallel){
+		final T[] rowMinimums=allocateLine();
+		final T[] columnMaximums=allocateLine();
+		processInBands(parallel,(from,to)->{
+			final T[] maximums=allocateLine();//column maximums of band
+			for(int row=from;row<to;row++) {
+				T minimum=data[row][0];
+				for(int column=0;column<dimension;column++) {
+					final T value=data[row][column];
+					if(value.compareTo(minimum)<0) minimum=value;
+					if(row==from || value.compareTo(maximums[column])>0) maximums[column]=value;
+				}
+				rowMinimums[row]=minimum;
+			}
+			synchronized(columnMaximums) {
+				for(int column=0;column<dimension;column++) {
+					if(columnMaximums[column]==null || maximums[column].compareTo(columnMaximums[column])>0) columnMaximums[column]=maximums[column];
+				}
+			}
+		});
+		return collectSaddlePoints(rowMinimums,columnMaximums,parallel);
+	}
+
+	/**
+	 * Collects elements that are equal to minimum of their row and maximum of their column
+	 */
+	PositionSet collectSaddlePoints(final T[] rowMinimums,final T[] columnMaximums,final boolean parallel) {
+		final PositionSet saddlePoints=new PositionSet();
+		processInBands(parallel,(from,to)->{
+			final BitSet cells=new BitSet();
+			for(int row=from;row<to;row++) {
+				for(int column=0;column<dimension;column++) {
+					final T value=data[row][column];
+					if(value.compareTo(rowMinimums[row])==0 && value.compareTo(columnMaximums[column])==0) {
+						cells.set((row-from)*dimension+column);
+					}
+				}
+			}
+			saddlePoints.addCells(cells,from*dimension);
+		});
+		return saddlePoints;
+	}
+
+	/**
+	 * Processes bands of rows within [0,dimension) concurrently, if {@code parallel} is set, or the whole range in current thread otherwise
+	 */
+	private void processInBands(final boolean parallel,final Utensils.BandProcessor processor) {
+		if(parallel) Utensils.processInBands(dimension,Math.max(1,MIN_BAND_CELLS/dimension),processor);
+		else processor.process(0,dimension);
+	}
+
+	//copies all elements in row order
+	private T[] toArray() {
+		@SuppressWarnings("unchecked")
+		final T[] values=(T[])Array.newInstance(Ordinal.class,dimension*dimension);
+		for(int row=0;row<dimension;row++) {
+			System.arraycopy(data[row],0,values,row*dimension,dimension);
+		}
+		return values;
+	}
+	
+	private T kthSmallest(final T[] values,final int k) {
+		checkIndex("k",k,1,values.length+1);
+		return new QuickSelector<T>(Comparator.naturalOrder()).select(values,k-1);
+	}
+	
+	private List<T> topK(final T[] values,final int count,final boolean maximum) {
+		new QuickSelector<T>(maximum?Comparator.reverseOrder():Comparator.naturalOrder()).selectTop(values,count);
+		return new ArrayList<T>(Arrays.asList(values).subList(0,count));
+	}
+	
+	private T percentile(final T[] values,final double percent) {
+		if(percent<0 || percent>100) throw new RuntimeException(String.format("percent (%f) must be within [0,100]",percent));
+		return kthSmallest(values,Math.max(1,(int)Math.ceil(percent/100*values.length)));
+	}
+	
+	/**
+	 * Finds k-th smallest element of matrix in expected linear time without sorting it
+	 * @param k rank of element starting with 1
+	 * @return k-th smallest element
+	 */
+	public T getKthSmallest(final int k) {
+		return kthSmallest(toArray(),k);
+	}
+	
+	/**
+	 * Collects {@code count} greatest (or smallest) elements of matrix
+	 * @param count number of elements to collect
+	 * @param maximum collects greatest elements if {@code true}, smallest otherwise
+	 * @return elements ordered from the most extreme one
+	 */
+	public List<T> topK(final int count,final boolean maximum) {
+		return topK(toArray(),count,maximum);
+	}
+	
+	/**
+	 * Finds percentile of matrix elements by nearest-rank method
+	 * @param percent within [0,100]
+	 * @return least element that is not less than {@code percent} percents of elements
+	 */
+	public T getPercentile(final double percent) {
+		return percentile(toArray(),percent);
+	}
+	
+	public T getMedian() {
+		return getPercentile(50);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private T[] allocateLine() {
+		return (T[])Array.newInstance(Ordinal.class,dimension);
 	}
 	
 	/**
@@ -1454,14 +2361,28 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @return set of local extremums
 	 */
 	public Set<Position> getLocalExtremums(final boolean maximum){
-		final Set<Position> extremums=new HashSet<>();
-		for(final Segment row:this) {
-			for(final Segment.SegmentIterator i=row.listIterator();i.hasNext();) {
-				final Position position=i.nextPosition();
-				if(position.isLocalExtremum(maximum)) extremums.add(position);
-			}
-		}
-		return extremums;
+		return getLocalExtremumSet(maximum,false);
+	}
+
+	/**
+	 * Collects set of local extremums within matrix comparing every element with max (min) filter of its 3x3 neighbourhood
+	 * @param maximum look for maximums if {@code true} and for minimums if {@code false}
+	 * @param parallel scan bands of rows concurrently if {@code true}
+	 * @return compact set of local extremums
+	 */
+	public PositionSet getLocalExtremumSet(final boolean maximum,final boolean parallel){
+		return getLocalExtremumSet(maximum,1,parallel);
+	}
+	
+	/**
+	 * Collects set of elements that are strictly greater (less) than all other elements of their {@code (2*radius+1)x(2*radius+1)} neighbourhoods
+	 * @param maximum look for maximums if {@code true} and for minimums if {@code false}
+	 * @param radius of neighbourhood, 1 for 3x3, 2 for 5x5 and so on
+	 * @param parallel scan bands of rows concurrently if {@code true}
+	 * @return compact set of local extremums
+	 */
+	public PositionSet getLocalExtremumSet(final boolean maximum,final int radius,final boolean parallel){
+		return new Stencil<T>(this,radius).getLocalExtremums(maximum,parallel);
 	}
 	
 	/**
@@ -1480,37 +2401,164 @@ public class Matrix <T extends Ordinal<T>> implements Cloneable, Iterable<Matrix
 	 * @author Serhii Pylypenko
 	 */
 	public class DiagonallyScannedSequence implements Sequence<T> {
-			  
+
+		private static final int COLUMN_BITS=16;//dimension can't exceed 2^16 since size of sequence is int
+		private static final int COLUMN_MASK=(1<<COLUMN_BITS)-1;
+
+		private final int[] cells;//optional table of packed row&column for every index
+
+		public DiagonallyScannedSequence() {
+			this(false);
+		}
+
+		/**
+		 * Creates sequence
+		 * @param indexed precompute table of rows and columns (4 bytes per element) to avoid division on every key access, if {@code true} 
+		 */
+		public DiagonallyScannedSequence(final boolean indexed) {
+			if(indexed) {
+				cells=new int[size()];
+				int index=0;
+				for(int dividend=0;dividend<dimension;dividend++) {
+					for(int column=0;column<dimension;column++) {
+						cells[index++]=(mapToRow(dividend,column)<<COLUMN_BITS)|column;
+					}
+				}
+			}else {
+				cells=null;
+			}
+		}
+
 		@Override public int size() {
 			return getDimension()*getDimension();
 		}
-		
-		//maps index of sequence item to row&column 
-		private Position mapIndexToPosition(final int index) {
-			final int dividend=index/getDimension();
-			final int remainder=index%getDimension();
-			final int firstPartSize=getDimension()-dividend;
-			//final int secondPartSize=dividend;
-			final int row=remainder<firstPartSize?
-					dividend+remainder:
-						remainder-firstPartSize;
-			final int column=remainder;
-			return new Position(row,column);
+
+		//maps dividend&remainder of sequence index to row, first part of dividend-th pair of diagonals takes rows [dividend..dimension), second one takes rows [0..dividend)
+		private int mapToRow(final int dividend,final int column) {
+			final int row=dividend+column;
+			return row<dimension?row:row-dimension;
 		}
-	
+
 		@Override public T getKey(final int index) {
-			return mapIndexToPosition(index).getValue();
+			if(cells!=null) {
+				final int cell=cells[index];
+				return data[cell>>>COLUMN_BITS][cell&COLUMN_MASK];
+			}
+			final int dividend=index/dimension;
+			final int column=index-dividend*dimension;
+			return data[mapToRow(dividend,column)][column];
 		}
-	
+
+		private void setKey(final int index,final T value) {
+			if(cells!=null) {
+				final int cell=cells[index];
+				store(cell>>>COLUMN_BITS,cell&COLUMN_MASK,value);
+			}else {
+				final int dividend=index/dimension;
+				final int column=index-dividend*dimension;
+				store(mapToRow(dividend,column),column,value);
+			}
+		}
+
 		@Override public void swap(final int from, final int to) {
-			final Position fromRef=mapIndexToPosition(from);
-			final Position toRef=mapIndexToPosition(to);
-			
-			final T save=fromRef.getValue();
-			fromRef.setValue(toRef.getValue());
-			toRef.setValue(save);	
+			final T save=getKey(from);
+			setKey(from,getKey(to));
+			setKey(to,save);
+		}
+
+		/**
+		 * Copies elements of matrix into contiguous array in order of sequence
+		 * @return array of elements
+		 */
+		@SuppressWarnings("unchecked")
+		public T[] gather() {
+			final T[] values=(T[])Array.newInstance(Ordinal.class,size());
+			int index=0;
+			for(int dividend=0;dividend<dimension;dividend++) {
+				for(int column=0;column<dimension;column++) {
+					values[index++]=data[mapToRow(dividend,column)][column];
+				}
+			}
+			return values;
 		}
-		  
+
+		/**
+		 * Writes elements back to matrix in order of sequence
+		 * @param values array of elements produced by {@link #gather()}
+		 */
+		public void scatter(final T[] values) {
+			if(values.length!=size()) throw new RuntimeException(String.format("number of values should be equal to %d",size()));
+			modified();
+			int index=0;
+			for(int dividend=0;dividend<dimension;dividend++) {
+				for(int column=0;column<dimension;column++) {
+					store(mapToRow(dividend,column),column,values[index++]);
+				}
+			}
+		}
+
+		/**
+		 * Sorts contiguous copy of sequence and writes it back, that is faster than sorting matrix in place via {@code getKey/swap}
+		 * @param comparator determines sorting order
+		 */
+		public void sort(final Comparator<? super T> comparator) {
+			final T[] values=gather();
+			Arrays.sort(values,comparator);
+			scatter(values);
+		}
+
+		/**
+		 * Sorts sequence on primitive keys, that are extracted once into array and sorted together with contiguous copy of elements
+		 * @param key extracts primitive key from element, e.g. {@code Real::doubleValue}
+		 * @param comparator determines sorting order, e.g. {@code DoubleSequence.NATURAL}
+		 */
+		public void sort(final ToDoubleFunction<? super T> key,final DoubleSequence.KeyComparator comparator) {
+			final T[] values=gather();
+			final double[] keys=new double[values.length];
+			for(int index=0;index<values.length;index++) keys[index]=key.applyAsDouble(values[index]);
+			new DoubleQuickSorter(comparator).sort(new DoubleSequence() {
+				@Override public int size() {
+					return keys.length;
+				}
+
+				@Override public double getKey(final int index) {
+					return keys[index];
+				}
+
+				@Override public void swap(final int from, final int to) {
+					final double key=keys[from]; keys[from]=keys[to]; keys[to]=key;
+					final T value=values[from]; values[from]=values[to]; values[to]=value;
+				}
+			});
+			scatter(values);
+		}
+
+		/**
+		 * Sorts sequence on primitive keys, that are extracted once into array and sorted together with contiguous copy of elements
+		 * @param key extracts primitive key from element, e.g. {@code Cardinal::longValue}
+		 * @param comparator determines sorting order, e.g. {@code LongSequence.NATURAL}
+		 */
+		public void sort(final ToLongFunction<? super T> key,final LongSequence.KeyComparator comparator) {
+			final T[] values=gather();
+			final long[] keys=new long[values.length];
+			for(int index=0;index<values.length;index++) keys[index]=key.applyAsLong(values[index]);
+			new LongQuickSorter(comparator).sort(new LongSequence() {
+				@Override public int size() {
+					return keys.length;
+				}
+
+				@Override public long getKey(final int index) {
+					return keys[index];
+				}
+
+				@Override public void swap(final int from, final int to) {
+					final long key=keys[from]; keys[from]=keys[to]; keys[to]=key;
+					final T value=values[from]; values[from]=values[to]; values[to]=value;
+				}
+			});
+			scatter(values);
+		}
+
 	}
 	 
 }
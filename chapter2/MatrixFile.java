@@ -0,0 +1,535 @@
+package chapter2;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import math.Cardinal;
+import math.Decimal;
+import math.Ordinal;
+import math.Real;
+import utils.BlockCodec;
+
+/**
+ * Binary file format of matrix, all numbers are big-endian:
+ * <pre>
+ * magic 'MTRX' (4 bytes), version (2 bytes), element type (1 byte), encoding (1 byte), layout (1 byte), compression (1 byte), dimension (4 bytes),
+ * elements row by row
+ * </pre>
+ * Elements are encoded as 8-byte doubles ({@code Real}), 8-byte longs ({@code Cardinal} if all of them fit)
+ * or variable-length two's complement integers prefixed with 4-byte length ({@code Cardinal}, unscaled value of {@code Decimal} preceded by 4-byte scale).
+ * {@code Cardinal} elements fitting in longs may also be encoded compactly:
+ * <ul>
+ * <li>{@code VARINT} - zigzag varint (7 bits per byte, least significant first) of every element,</li>
+ * <li>{@code DELTA} - zigzag varint of difference of element and its left neighbour (first element of row and first element of previous row),</li>
+ * <li>{@code PACKED} - every row is prefixed with zigzag varint of its minimum and 1-byte bit width of differences of elements and minimum,
+ * that are packed least significant first into the fewest bytes</li>
+ * </ul>
+ * If compression is 1 elements are split into blocks of at most 64KB compressed by {@link BlockCodec}, every one of them is prefixed with
+ * 4-byte size of compressed data (0 for blocks stored as is) and 4-byte size of original data.
+ * Version 1 files have no compressed encodings and no compression.
+ * File is read and written through {@code FileChannel} by direct buffers of 4MB, blocks are compressed and decompressed as they are written and read
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public final class MatrixFile {
+
+	public enum ElementType { REAL(Real.class), CARDINAL(Cardinal.class), DECIMAL(Decimal.class);
+		private final Class<?> elementClass;//class of elements created by reading
+
+		ElementType(final Class<?> elementClass) {
+			this.elementClass=elementClass;
+		}
+
+		public Class<?> getElementClass() {
+			return elementClass;
+		}
+
+		static ElementType of(final Ordinal<?> value) {
+			for(final ElementType type:values()) {
+				if(type.elementClass.isInstance(value)) return type;
+			}
+			throw new RuntimeException(String.format("elements of type %s can't be stored",value.getClass().getName()));
+		}
+	}
+
+	public enum Encoding { FIXED, VARIABLE, VARINT, DELTA, PACKED }
+
+	public enum Layout { ROWS }
+
+	//encodings applicable to elements of every type, Cardinal encodings other than VARIABLE also require elements to fit in longs
+	private static boolean supports(final ElementType type,final Encoding encoding) {
+		switch(type) {
+		case REAL:
+			return encoding==Encoding.FIXED;
+		case DECIMAL:
+			return encoding==Encoding.VARIABLE;
+		default:
+			return true;
+		}
+	}
+
+	static final int MAGIC=0x4D545258;//'MTRX'
+	static final short VERSION=2;
+	static final int HEADER_SIZE=14;
+	static final int BUFFER_SIZE=1<<22;
+	static final int BLOCK_SIZE=BlockCodec.MAX_BLOCK_SIZE;
+	static final int MAX_DIMENSION=46340;//number of cells fits in int
+	private static final int MAX_VARINT_SIZE=10;
+
+	private MatrixFile() {}
+
+	/**
+	 * Buffered output to file channel
+	 */
+	static final class Output implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer=ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private byte[] block, packed;//uncompressed and compressed block, allocated if compression is on
+		private long bits;//bits to pack that don't fill whole word yet
+		private int bitCount;
+
+		Output(final Path path) throws IOException {
+			channel=FileChannel.open(path,StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		//compresses all bytes written since then
+		void compress() throws IOException {
+			flush();
+			block=new byte[BLOCK_SIZE];
+			packed=new byte[BlockCodec.maxCompressedLength(BLOCK_SIZE)];
+			buffer.limit(BLOCK_SIZE);
+		}
+
+		//provides buffer with at least 'bytes' (no more than block size) bytes available
+		ByteBuffer reserve(final int bytes) throws IOException {
+			if(buffer.remaining()<bytes) flush();
+			return buffer;
+		}
+
+		void putBytes(final byte[] bytes) throws IOException {
+			int offset=0;
+			while(offset<bytes.length) {
+				if(!buffer.hasRemaining()) flush();
+				final int length=Math.min(buffer.remaining(),bytes.length-offset);
+				buffer.put(bytes,offset,length);
+				offset+=length;
+			}
+		}
+
+		void putVarLong(final long value) throws IOException {
+			final ByteBuffer target=reserve(MAX_VARINT_SIZE);
+			long zigzag=(value<<1)^(value>>63);
+			for(;(zigzag&~0x7FL)!=0;zigzag>>>=7) target.put((byte)(zigzag|0x80));
+			target.put((byte)zigzag);
+		}
+
+		//appends 'width' low bits of value to packed row
+		void putBits(final long value,final int width) throws IOException {
+			bits|=value<<bitCount;
+			if(bitCount+width>=Long.SIZE) {
+				reserve(Long.BYTES).putLong(Long.reverseBytes(bits));
+				bits=bitCount==0?0:value>>>(Long.SIZE-bitCount);
+				bitCount+=width-Long.SIZE;
+			}else {
+				bitCount+=width;
+			}
+		}
+
+		//writes remaining bits of packed row padded to whole byte
+		void flushBits() throws IOException {
+			for(;bitCount>0;bitCount-=Byte.SIZE,bits>>>=Byte.SIZE) reserve(1).put((byte)bits);
+			bits=0;
+			bitCount=0;
+		}
+
+		private void write(final ByteBuffer source) throws IOException {
+			while(source.hasRemaining()) channel.write(source);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			if(block==null) {
+				write(buffer);
+				buffer.clear();
+				return;
+			}
+			final int length=buffer.remaining();
+			if(length==0) {
+				buffer.clear().limit(BLOCK_SIZE);
+				return;
+			}
+			buffer.get(block,0,length);
+			final int packedLength=BlockCodec.compress(block,length,packed);
+			final boolean stored=packedLength>=length;
+			buffer.clear();
+			buffer.putInt(stored?0:packedLength).putInt(length).flip();
+			write(buffer);
+			write(ByteBuffer.wrap(stored?block:packed,0,stored?length:packedLength));
+			buffer.clear().limit(BLOCK_SIZE);
+		}
+
+		@Override public void close() throws IOException {
+			try {
+				flush();
+			}finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Buffered input from file channel
+	 */
+	static final class Input implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer=ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private ByteBuffer source;//compressed bytes, if compression is on buffer holds decompressed ones
+		private byte[] block, packed;
+		private long bits;//unread bits of packed row
+		private int bitCount, packedBytes;
+
+		Input(final Path path) throws IOException {
+			channel=FileChannel.open(path,StandardOpenOption.READ);
+			buffer.limit(0);
+		}
+
+		//decompresses all bytes read since then
+		void decompress() {
+			source=ByteBuffer.allocateDirect(BUFFER_SIZE);
+			source.put(buffer).flip();
+			buffer.clear().limit(0);
+			block=new byte[BLOCK_SIZE];
+			packed=new byte[BlockCodec.maxCompressedLength(BLOCK_SIZE)];
+		}
+
+		private static void fill(final FileChannel channel,final ByteBuffer target,final int bytes) throws IOException {
+			if(target.remaining()<bytes) {
+				target.compact();
+				while(target.position()<bytes) {
+					if(channel.read(target)<0) throw new EOFException("unexpected end of matrix file");
+				}
+				target.flip();
+			}
+		}
+
+		private void readBlock() throws IOException {
+			fill(channel,source,2*Integer.BYTES);
+			final int packedLength=source.getInt(), length=source.getInt();
+			if(packedLength<0 || packedLength>packed.length || length<=0 || length>BLOCK_SIZE) throw new RuntimeException("corrupted block header of matrix file");
+			if(packedLength==0) {
+				fill(channel,source,length);
+				source.get(block,0,length);
+			}else {
+				fill(channel,source,packedLength);
+				source.get(packed,0,packedLength);
+				BlockCodec.decompress(packed,packedLength,block,length);
+			}
+			buffer.put(block,0,length);
+		}
+
+		//provides buffer with at least 'bytes' (no more than block size) bytes available
+		ByteBuffer require(final int bytes) throws IOException {
+			if(source==null) {
+				fill(channel,buffer,bytes);
+			}else if(buffer.remaining()<bytes) {
+				buffer.compact();
+				while(buffer.position()<bytes) readBlock();
+				buffer.flip();
+			}
+			return buffer;
+		}
+
+		void getBytes(final byte[] bytes) throws IOException {
+			int offset=0;
+			while(offset<bytes.length) {
+				final int length=Math.min(BLOCK_SIZE,bytes.length-offset);
+				require(length).get(bytes,offset,length);
+				offset+=length;
+			}
+		}
+
+		long getVarLong() throws IOException {
+			long zigzag=0;
+			for(int shift=0;;shift+=7) {
+				if(shift>=Long.SIZE) throw new RuntimeException("corrupted varint in matrix file");
+				final byte next=require(1).get();
+				zigzag|=(next&0x7FL)<<shift;
+				if(next>=0) break;
+			}
+			return (zigzag>>>1)^-(zigzag&1);
+		}
+
+		//starts packed row of given number of bytes
+		void startBits(final int bytes) {
+			packedBytes=bytes;
+			bits=0;
+			bitCount=0;
+		}
+
+		//reads next little-endian word of packed row, the last one may be shorter
+		private long getWord() throws IOException {
+			if(packedBytes>=Long.BYTES) {
+				packedBytes-=Long.BYTES;
+				return Long.reverseBytes(require(Long.BYTES).getLong());
+			}
+			long word=0;
+			for(int shift=0;packedBytes>0;packedBytes--,shift+=Byte.SIZE) word|=(require(1).get()&0xFFL)<<shift;
+			return word;
+		}
+
+		long getBits(final int width) throws IOException {
+			final long mask=width==Long.SIZE?-1L:(1L<<width)-1;
+			if(bitCount>=width) {
+				final long value=bits&mask;
+				bits=width==Long.SIZE?0:bits>>>width;
+				bitCount-=width;
+				return value;
+			}
+			final long word=getWord(), value=(bits|word<<bitCount)&mask;
+			final int consumed=width-bitCount;
+			bits=consumed==Long.SIZE?0:word>>>consumed;
+			bitCount=Long.SIZE-consumed;
+			return value;
+		}
+
+		long size() throws IOException {
+			return channel.size();
+		}
+
+		@Override public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static boolean fitsInLongs(final Matrix<?> matrix) {
+		for(int row=0;row<matrix.getDimension();row++) {
+			for(int column=0;column<matrix.getDimension();column++) {
+				if(((Cardinal)matrix.get(row,column)).bigIntegerValue().bitLength()>=Long.SIZE) return false;
+			}
+		}
+		return true;
+	}
+
+	private static long getLong(final Matrix<?> matrix,final int row,final int column) {
+		return ((Cardinal)matrix.get(row,column)).longValue();
+	}
+
+	private static int varLongSize(final long value) {
+		final long zigzag=(value<<1)^(value>>63);
+		return zigzag==0?1:(Long.SIZE-Long.numberOfLeadingZeros(zigzag)+6)/7;
+	}
+
+	//number of bits of differences of row elements and their minimum, they are compared as unsigned
+	private static int bitWidth(final long minimum,final long maximum) {
+		return Long.SIZE-Long.numberOfLeadingZeros(maximum-minimum);
+	}
+
+	//chooses the most compact encoding of Cardinal elements fitting in longs
+	private static Encoding chooseEncoding(final Matrix<?> matrix) {
+		final int dimension=matrix.getDimension();
+		long varint=0, delta=0, packed=0;
+		long previous=0;//first element of previous row
+		for(int row=0;row<dimension;row++) {
+			long minimum=Long.MAX_VALUE, maximum=Long.MIN_VALUE, left=previous;
+			for(int column=0;column<dimension;column++) {
+				final long value=getLong(matrix,row,column);
+				varint+=varLongSize(value);
+				delta+=varLongSize(value-left);
+				left=value;
+				minimum=Math.min(minimum,value);
+				maximum=Math.max(maximum,value);
+			}
+			previous=getLong(matrix,row,0);
+			packed+=varLongSize(minimum)+1+((long)dimension*bitWidth(minimum,maximum)+7)/8;
+		}
+		final long fixed=(long)dimension*dimension*Long.BYTES;
+		final long smallest=Math.min(Math.min(fixed,varint),Math.min(delta,packed));
+		return smallest==packed?Encoding.PACKED:smallest==delta?Encoding.DELTA:smallest==varint?Encoding.VARINT:Encoding.FIXED;
+	}
+
+	private static void putBigInteger(final Output output,final BigInteger value) throws IOException {
+		final byte[] bytes=value.toByteArray();
+		output.reserve(Integer.BYTES).putInt(bytes.length);
+		output.putBytes(bytes);
+	}
+
+	private static BigInteger getBigInteger(final Input input) throws IOException {
+		final byte[] bytes=new byte[input.require(Integer.BYTES).getInt()];
+		input.getBytes(bytes);
+		return new BigInteger(bytes);
+	}
+
+	/**
+	 * Writes matrix of {@code Real}, {@code Cardinal} or {@code Decimal} elements to file without compression,
+	 * {@code Cardinal} elements fitting in longs are written in the most compact encoding
+	 * @param matrix matrix to save
+	 * @param path file to create or overwrite
+	 * @throws IOException if file can't be written
+	 */
+	public static void write(final Matrix<?> matrix,final Path path) throws IOException {
+		final ElementType type=ElementType.of(matrix.get(0,0));
+		final Encoding encoding=type==ElementType.REAL?Encoding.FIXED:
+			type==ElementType.CARDINAL && fitsInLongs(matrix)?chooseEncoding(matrix):Encoding.VARIABLE;
+		write(matrix,path,encoding,false);
+	}
+
+	/**
+	 * Writes matrix of {@code Real}, {@code Cardinal} or {@code Decimal} elements to file
+	 * @param matrix matrix to save
+	 * @param path file to create or overwrite
+	 * @param encoding encoding of elements, {@code FIXED} for {@code Real}, {@code VARIABLE} for {@code Decimal}, any one for {@code Cardinal},
+	 * but only {@code VARIABLE} if some elements don't fit in longs
+	 * @param compressed compresses elements by {@link BlockCodec}, if {@code true}
+	 * @throws IOException if file can't be written
+	 */
+	public static void write(final Matrix<?> matrix,final Path path,final Encoding encoding,final boolean compressed) throws IOException {
+		final int dimension=matrix.getDimension();
+		final ElementType type=ElementType.of(matrix.get(0,0));
+		if(!supports(type,encoding) || type==ElementType.CARDINAL && encoding!=Encoding.VARIABLE && !fitsInLongs(matrix)) throw new RuntimeException(String.format("elements of type %s can't be written in encoding %s",type,encoding));
+		try(final Output output=new Output(path)) {
+			output.reserve(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).
+				put((byte)type.ordinal()).put((byte)encoding.ordinal()).put((byte)Layout.ROWS.ordinal()).put((byte)(compressed?1:0)).
+				putInt(dimension);
+			if(compressed) output.compress();
+			long previous=0;//first element of previous row
+			for(int row=0;row<dimension;row++) {
+				long left=previous;
+				if(encoding==Encoding.PACKED) {
+					long minimum=Long.MAX_VALUE, maximum=Long.MIN_VALUE;
+					for(int column=0;column<dimension;column++) {
+						final long value=getLong(matrix,row,column);
+						minimum=Math.min(minimum,value);
+						maximum=Math.max(maximum,value);
+					}
+					final int width=bitWidth(minimum,maximum);
+					output.putVarLong(minimum);
+					output.reserve(1).put((byte)width);
+					if(width>0) {
+						for(int column=0;column<dimension;column++) output.putBits(getLong(matrix,row,column)-minimum,width);
+						output.flushBits();
+					}
+					continue;
+				}
+				for(int column=0;column<dimension;column++) {
+					final Ordinal<?> value=matrix.get(row,column);
+					switch(type) {
+					case REAL:
+						output.reserve(Double.BYTES).putDouble(((Real)value).doubleValue());
+						break;
+					case CARDINAL:
+						switch(encoding) {
+						case FIXED:
+							output.reserve(Long.BYTES).putLong(((Cardinal)value).longValue());
+							break;
+						case VARINT:
+							output.putVarLong(((Cardinal)value).longValue());
+							break;
+						case DELTA:
+							final long current=((Cardinal)value).longValue();
+							output.putVarLong(current-left);
+							left=current;
+							break;
+						default:
+							putBigInteger(output,((Cardinal)value).bigIntegerValue());
+						}
+						break;
+					case DECIMAL:
+						final BigDecimal decimal=((Decimal)value).bigDecimalValue();
+						output.reserve(Integer.BYTES).putInt(decimal.scale());
+						putBigInteger(output,decimal.unscaledValue());
+						break;
+					}
+				}
+				if(encoding==Encoding.DELTA) previous=getLong(matrix,row,0);
+			}
+		}
+	}
+
+	/**
+	 * Reads matrix from file, elements are decoded as blocks are read and put straight into rows of matrix
+	 * @param <T> type of matrix elements
+	 * @param path file to read
+	 * @param elementClass expected class of elements ({@code Real.class}, {@code Cardinal.class} or {@code Decimal.class})
+	 * @return new matrix
+	 * @throws IOException if file can't be read
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Ordinal<T>> Matrix<T> read(final Path path,final Class<T> elementClass) throws IOException {
+		try(final Input input=new Input(path)) {
+			final ByteBuffer header=input.require(HEADER_SIZE);
+			if(header.getInt()!=MAGIC) throw new RuntimeException(String.format("%s is not a matrix file",path));
+			final short version=header.getShort();
+			if(version<1 || version>VERSION) throw new RuntimeException(String.format("unsupported version %d of matrix file",version));
+			final byte typeIndex=header.get(), encodingIndex=header.get(), layoutIndex=header.get(), compression=header.get();
+			final int dimension=header.getInt();
+			if(typeIndex<0 || typeIndex>=ElementType.values().length) throw new RuntimeException(String.format("unsupported element type %d of matrix file",typeIndex));
+			if(encodingIndex<0 || encodingIndex>=(version==1?Encoding.VARINT.ordinal():Encoding.values().length)) {
+				throw new RuntimeException(String.format("unsupported encoding %d of matrix file",encodingIndex));
+			}
+			if(layoutIndex!=Layout.ROWS.ordinal()) throw new RuntimeException(String.format("unsupported layout %d of matrix file",layoutIndex));
+			if(compression<0 || compression>(version==1?0:1)) throw new RuntimeException(String.format("unsupported compression %d of matrix file",compression));
+			final ElementType type=ElementType.values()[typeIndex];
+			final Encoding encoding=Encoding.values()[encodingIndex];
+			if(!supports(type,encoding)) throw new RuntimeException(String.format("encoding %s of matrix file doesn't apply to elements of type %s",encoding,type));
+			//every row takes at least one byte unless it is compressed
+			if(dimension<1 || dimension>MAX_DIMENSION || compression==0 && dimension>input.size()-HEADER_SIZE) {
+				throw new RuntimeException(String.format("invalid dimension %d of matrix file",dimension));
+			}
+			if(elementClass!=type.elementClass) throw new RuntimeException(String.format("file contains elements of type %s",type));
+			if(compression==1) input.decompress();
+			final T[][] rows=(T[][])Array.newInstance(Ordinal.class,new int[] {dimension,dimension});
+			long previous=0;//first element of previous row
+			for(int row=0;row<dimension;row++) {
+				final T[] line=rows[row];
+				if(encoding==Encoding.PACKED) {
+					final long minimum=input.getVarLong();
+					final int width=input.require(1).get();
+					if(width<0 || width>Long.SIZE) throw new RuntimeException(String.format("invalid bit width %d in matrix file",width));
+					input.startBits((int)(((long)dimension*width+7)/8));
+					for(int column=0;column<dimension;column++) line[column]=(T)new Cardinal(minimum+(width==0?0:input.getBits(width)));
+					continue;
+				}
+				long left=previous;
+				for(int column=0;column<dimension;column++) {
+					switch(type) {
+					case REAL:
+						line[column]=(T)new Real(input.require(Double.BYTES).getDouble());
+						break;
+					case CARDINAL:
+						switch(encoding) {
+						case FIXED:
+							line[column]=(T)new Cardinal(input.require(Long.BYTES).getLong());
+							break;
+						case VARINT:
+							line[column]=(T)new Cardinal(input.getVarLong());
+							break;
+						case DELTA:
+							left+=input.getVarLong();
+							line[column]=(T)new Cardinal(left);
+							if(column==0) previous=left;
+							break;
+						default:
+							line[column]=(T)new Cardinal(getBigInteger(input));
+						}
+						break;
+					case DECIMAL:
+						final int scale=input.require(Integer.BYTES).getInt();
+						line[column]=(T)new Decimal(new BigDecimal(getBigInteger(input),scale));
+						break;
+					}
+				}
+			}
+			return new Matrix<T>(rows);
+		}
+	}
+
+}
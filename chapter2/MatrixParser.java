@@ -0,0 +1,349 @@
+package chapter2;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import math.Cardinal;
+import math.Decimal;
+import math.Ordinal;
+import math.Real;
+import utils.Utensils;
+
+/**
+ * Reads square matrix from text, every line of which holds one row of numbers separated by commas, semicolons, spaces or tabs,
+ * empty fields between commas (semicolons) are rejected.
+ * Text is scanned character by character from reusable buffer, numbers are accumulated as long mantissa and decimal scale
+ * without creating strings, only numbers of more than 18 significant digits are passed to element factory as text.
+ * Large files may be split into chunks at line boundaries and parsed concurrently
+ *
+ * @author Serhii Pylypenko
+ * @param <T> type of matrix element
+ * @version 1.5
+ */
+public class MatrixParser<T extends Ordinal<T>> {
+
+	/**
+	 * Creates matrix elements from parsed numbers
+	 */
+	public interface ElementFactory<T> {
+		T ofLong(final long value);
+		T ofDecimal(final long unscaled,final int scale);//value is unscaled*10^-scale
+		T ofText(final String text);//number that doesn't fit in long mantissa
+	}
+
+	private static final double[] POWERS_OF_TEN= {1e0,1e1,1e2,1e3,1e4,1e5,1e6,1e7,1e8,1e9,1e10,1e11,1e12,1e13,1e14,1e15,1e16,1e17,1e18,1e19,1e20,1e21,1e22};
+
+	public static final ElementFactory<Real> REAL=new ElementFactory<Real>() {
+		@Override public Real ofLong(final long value) {
+			return new Real(value);
+		}
+
+		@Override public Real ofDecimal(final long unscaled,final int scale) {
+			if(Math.abs(unscaled)<1L<<53 && Math.abs(scale)<POWERS_OF_TEN.length) {//both operands are exact, so single operation is rounded correctly
+				return new Real(scale>=0?unscaled/POWERS_OF_TEN[scale]:unscaled*POWERS_OF_TEN[-scale]);
+			}
+			return new Real(BigDecimal.valueOf(unscaled,scale).doubleValue());
+		}
+
+		@Override public Real ofText(final String text) {
+			return new Real(Double.parseDouble(text));
+		}
+	};
+
+	public static final ElementFactory<Cardinal> CARDINAL=new ElementFactory<Cardinal>() {
+		@Override public Cardinal ofLong(final long value) {
+			return new Cardinal(value);
+		}
+
+		@Override public Cardinal ofDecimal(final long unscaled,final int scale) {
+			return new Cardinal(BigDecimal.valueOf(unscaled,scale).toBigIntegerExact());
+		}
+
+		@Override public Cardinal ofText(final String text) {
+			return new Cardinal(new BigDecimal(text).toBigIntegerExact());
+		}
+	};
+
+	public static final ElementFactory<Decimal> DECIMAL=new ElementFactory<Decimal>() {
+		@Override public Decimal ofLong(final long value) {
+			return new Decimal(value);
+		}
+
+		@Override public Decimal ofDecimal(final long unscaled,final int scale) {
+			return new Decimal(BigDecimal.valueOf(unscaled,scale));
+		}
+
+		@Override public Decimal ofText(final String text) {
+			return new Decimal(new BigDecimal(text));
+		}
+	};
+
+	static final int BUFFER_SIZE=1<<16;
+	static final int MIN_PARALLEL_SIZE=1<<20;//files of less bytes are parsed sequentially
+	private static final int MAX_MANTISSA_DIGITS=18;
+	private static final int MAX_EXPONENT=100000000;//keeps decimal scale within int
+
+	private final ElementFactory<T> factory;
+
+	public MatrixParser(final ElementFactory<T> factory) {
+		this.factory=factory;
+	}
+
+	/**
+	 * Splits characters into numbers and numbers into rows
+	 */
+	private class RowCollector {
+		private final List<T[]> rows=new ArrayList<>();
+		private T[] row;
+		private int width=-1, count;
+		private int line;
+		private boolean delimited;//comma or semicolon was met after last number of row
+		//state of current number
+		private boolean started, negative, point, exponent, negativeExponent, overflow;
+		private long mantissa;
+		private int digits, scale, power;
+		private final StringBuilder text=new StringBuilder();//characters of current number, used only if it overflows
+
+		RowCollector() {
+			this(1);
+		}
+
+		/**
+		 * @param firstLine number of the first line of text, so that messages refer to lines of the whole file
+		 */
+		@SuppressWarnings("unchecked")
+		RowCollector(final int firstLine) {
+			row=(T[])Array.newInstance(Ordinal.class,16);
+			line=firstLine;
+		}
+
+		private RuntimeException unexpected(final char c) {
+			return new RuntimeException(String.format("unexpected character '%c' at line %d",c,line));
+		}
+
+		void feed(final char c) {
+			if(c>='0' && c<='9') {
+				started=true;
+				text.append(c);
+				final int digit=c-'0';
+				if(exponent) {
+					power=power*10+digit;
+					if(power>MAX_EXPONENT) throw new RuntimeException(String.format("exponent exceeds %d at line %d",MAX_EXPONENT,line));
+				}else if(digits<MAX_MANTISSA_DIGITS) {
+					if(mantissa!=0 || digit!=0) digits++;//leading zeros are not significant
+					mantissa=mantissa*10+digit;
+					if(point) scale++;
+				}else {
+					overflow=true;
+				}
+				return;
+			}
+			switch(c) {
+			case '-': case '+':
+				if(exponent && text.length()>0 && (text.charAt(text.length()-1)=='e' || text.charAt(text.length()-1)=='E')) {
+					negativeExponent=c=='-';
+				}else if(text.length()==0) {
+					negative=c=='-';
+				}else throw unexpected(c);
+				text.append(c);
+				break;
+			case '.':
+				if(point || exponent) throw unexpected(c);
+				point=true;
+				text.append(c);
+				break;
+			case 'e': case 'E':
+				if(!started || exponent) throw unexpected(c);
+				exponent=true;
+				text.append(c);
+				break;
+			case ',': case ';':
+				if(text.length()==0 && delimited) throw new RuntimeException(String.format("empty field at line %d",line));
+				endNumber();
+				delimited=true;
+				break;
+			case ' ': case '\t': case '\r':
+				endNumber();
+				break;
+			case '\n':
+				endNumber();
+				endRow();
+				delimited=false;
+				line++;
+				break;
+			case '\uFEFF'://byte order mark
+				break;
+			default:
+				throw unexpected(c);
+			}
+		}
+
+		private void endNumber() {
+			if(text.length()==0) return;
+			if(!started) throw new RuntimeException(String.format("number expected at line %d",line));
+			final T value;
+			if(overflow) {
+				value=factory.ofText(text.toString());
+			}else {
+				final long signed=negative?-mantissa:mantissa;
+				final int decimalScale=scale-(negativeExponent?-power:power);
+				value=!point && !exponent?factory.ofLong(signed):factory.ofDecimal(signed,decimalScale);
+			}
+			if(count==row.length) {
+				if(width>=0) throw new RuntimeException(String.format("row at line %d should contain %d numbers",line,width));
+				row=Arrays.copyOf(row,2*count);
+			}
+			row[count++]=value;
+			delimited=false;
+			started=negative=point=exponent=negativeExponent=overflow=false;
+			mantissa=0;
+			digits=scale=power=0;
+			text.setLength(0);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void endRow() {
+			if(count==0) return;//empty lines are skipped
+			if(width<0) {
+				width=count;
+				rows.add(Arrays.copyOf(row,width));
+			}else {
+				if(count!=width) throw new RuntimeException(String.format("row at line %d should contain %d numbers",line,width));
+				rows.add(row);
+			}
+			row=(T[])Array.newInstance(Ordinal.class,width);
+			count=0;
+		}
+
+		void feed(final char[] chars,final int from,final int to) {
+			for(int index=from;index<to;index++) feed(chars[index]);
+		}
+
+		//numbers and separators are ASCII, so bytes are taken as characters
+		void feed(final ByteBuffer bytes) {
+			while(bytes.hasRemaining()) feed((char)(bytes.get()&0xFF));
+		}
+
+		List<T[]> finish() {
+			endNumber();
+			endRow();
+			return rows;
+		}
+	}
+
+	//skips UTF-8 byte order mark at the beginning of text
+	private static void skipByteOrderMark(final ByteBuffer bytes) {
+		final int at=bytes.position();
+		if(bytes.remaining()>=3 && bytes.get(at)==(byte)0xEF && bytes.get(at+1)==(byte)0xBB && bytes.get(at+2)==(byte)0xBF) bytes.position(at+3);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Matrix<T> assemble(final List<T[]> rows) {
+		if(rows.isEmpty()) throw new RuntimeException("matrix should contain at least one row");
+		for(final T[] row:rows) {
+			if(row.length!=rows.size()) throw new RuntimeException(String.format("matrix should be square, but it has %d rows of %d numbers",rows.size(),row.length));
+		}
+		return new Matrix<T>(rows.toArray((T[][])Array.newInstance(Ordinal[].class,rows.size())));
+	}
+
+	/**
+	 * Parses matrix from character stream
+	 * @param reader source of text
+	 * @return new matrix
+	 * @throws IOException if reading fails
+	 */
+	public Matrix<T> parse(final Reader reader) throws IOException {
+		final RowCollector collector=new RowCollector();
+		final char[] buffer=new char[BUFFER_SIZE];
+		int length;
+		while((length=reader.read(buffer))>=0) {
+			collector.feed(buffer,0,length);
+		}
+		return assemble(collector.finish());
+	}
+
+	/**
+	 * Parses matrix from ASCII text of channel, that may start with UTF-8 byte order mark
+	 * @param channel source of text
+	 * @return new matrix
+	 * @throws IOException if reading fails
+	 */
+	public Matrix<T> parse(final ReadableByteChannel channel) throws IOException {
+		final RowCollector collector=new RowCollector();
+		final ByteBuffer buffer=ByteBuffer.allocateDirect(BUFFER_SIZE);
+		while(buffer.position()<3 && channel.read(buffer)>=0);//byte order mark may take 3 bytes
+		buffer.flip();
+		skipByteOrderMark(buffer);
+		collector.feed(buffer);
+		buffer.clear();
+		while(channel.read(buffer)>=0) {
+			buffer.flip();
+			collector.feed(buffer);
+			buffer.clear();
+		}
+		return assemble(collector.finish());
+	}
+
+	/**
+	 * Parses matrix from ASCII text file, that may start with UTF-8 byte order mark
+	 * @param path file to parse
+	 * @param parallel maps file to memory, splits it into chunks at line boundaries and parses them concurrently, if {@code true}
+	 * @return new matrix
+	 * @throws IOException if reading fails
+	 */
+	public Matrix<T> parse(final Path path,final boolean parallel) throws IOException {
+		try(final FileChannel channel=FileChannel.open(path,StandardOpenOption.READ)) {
+			final long size=channel.size();
+			if(!parallel || size<MIN_PARALLEL_SIZE || size>Integer.MAX_VALUE) return parse(channel);
+			final MappedByteBuffer content=channel.map(FileChannel.MapMode.READ_ONLY,0,size);
+			final int chunkCount=4*ForkJoinPool.getCommonPoolParallelism();
+			final int[] bounds=new int[chunkCount+1];
+			for(int chunk=1;chunk<chunkCount;chunk++) {//move every bound to the beginning of next line
+				int bound=Math.max(bounds[chunk-1],(int)(size*chunk/chunkCount));
+				while(bound<size && content.get(bound)!='\n') bound++;
+				bounds[chunk]=Math.min((int)size,bound+1);
+			}
+			bounds[chunkCount]=(int)size;
+			final int[] firstLines=new int[chunkCount+1];//number of line every chunk starts with
+			Utensils.processInBands(chunkCount,1,(from,to)->{
+				for(int chunk=from;chunk<to;chunk++) {
+					int lines=0;
+					for(int index=bounds[chunk];index<bounds[chunk+1];index++) {
+						if(content.get(index)=='\n') lines++;
+					}
+					firstLines[chunk+1]=lines;
+				}
+			});
+			firstLines[0]=1;
+			for(int chunk=1;chunk<=chunkCount;chunk++) firstLines[chunk]+=firstLines[chunk-1];
+			final List<List<T[]>> parts=new ArrayList<>(Collections.nCopies(chunkCount,null));
+			Utensils.processInBands(chunkCount,1,(from,to)->{
+				for(int chunk=from;chunk<to;chunk++) {
+					final ByteBuffer bytes=content.duplicate();
+					bytes.position(bounds[chunk]).limit(bounds[chunk+1]);
+					if(chunk==0) skipByteOrderMark(bytes);
+					final RowCollector collector=new RowCollector(firstLines[chunk]);
+					collector.feed(bytes);
+					parts.set(chunk,collector.finish());
+				}
+			});
+			final List<T[]> rows=new ArrayList<>();
+			for(final List<T[]> part:parts) rows.addAll(part);
+			return assemble(rows);
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+package chapter2;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import chapter2.Matrix.IndexType;
+import math.Ordinal;
+
+/**
+ * Computes requested statistics of matrix in one row-by-row pass instead of separate traversal for every value:
+ * row/column sums and sums of absolute values (thus row/column norms), positions of global minimums/maximums,
+ * minimum of every row and maximum of every column (thus saddle points)
+ * 
+ * @author Serhii Pylypenko
+ * @param <T> type of matrix element
+ * @version 1.5
+ */
+public class MatrixStatistics<T extends Ordinal<T>> {
+
+	public enum Statistic { ROW_SUMS, ROW_ABS_SUMS, COLUMN_SUMS, COLUMN_ABS_SUMS, MINIMUMS, MAXIMUMS, ROW_MINIMUMS, COLUMN_MAXIMUMS };
+
+	private final Matrix<T> matrix;
+	private final Set<Statistic> statistics;
+
+	private T[] rowSums, rowAbsSums, columnSums, columnAbsSums;
+	private T[] rowMinimums, columnMaximums;
+	private T minimum, maximum;
+	private int[] minimumCells, maximumCells;//row*dimension+column of every global extremum
+	private int minimumCount, maximumCount;
+
+	/**
+	 * Computes all statistics of matrix
+	 * @param matrix matrix to inspect
+	 */
+	public MatrixStatistics(final Matrix<T> matrix) {
+		this(matrix,EnumSet.allOf(Statistic.class));
+	}
+
+	/**
+	 * Computes requested subset of statistics of matrix
+	 * @param matrix matrix to inspect
+	 * @param statistics statistics to compute
+	 */
+	public MatrixStatistics(final Matrix<T> matrix,final Set<Statistic> statistics) {
+		this.matrix=matrix;
+		this.statistics=statistics.isEmpty()?EnumSet.noneOf(Statistic.class):EnumSet.copyOf(statistics);
+		scan();
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] allocate(final Statistic statistic,final T initial) {
+		if(!statistics.contains(statistic)) return null;
+		final T[] values=(T[])Array.newInstance(Ordinal.class,matrix.getDimension());
+		Arrays.fill(values,initial);
+		return values;
+	}
+
+	private void scan() {
+		final int dimension=matrix.getDimension();
+		final T zero=matrix.get(0,0).zero();
+		rowSums=allocate(Statistic.ROW_SUMS,zero);
+		rowAbsSums=allocate(Statistic.ROW_ABS_SUMS,zero);
+		columnSums=allocate(Statistic.COLUMN_SUMS,zero);
+		columnAbsSums=allocate(Statistic.COLUMN_ABS_SUMS,zero);
+		rowMinimums=allocate(Statistic.ROW_MINIMUMS,null);
+		columnMaximums=allocate(Statistic.COLUMN_MAXIMUMS,null);
+		if(statistics.contains(Statistic.MINIMUMS)) minimumCells=new int[1];
+		if(statistics.contains(Statistic.MAXIMUMS)) maximumCells=new int[1];
+		final boolean abs=rowAbsSums!=null || columnAbsSums!=null;
+
+		for(int row=0;row<dimension;row++) {
+			T rowSum=zero, rowAbsSum=zero;
+			T rowMinimum=matrix.get(row,0);
+			for(int column=0;column<dimension;column++) {
+				final T value=matrix.get(row,column);
+				if(rowSums!=null) rowSum=rowSum.add(value);
+				if(columnSums!=null) columnSums[column]=columnSums[column].add(value);
+				if(abs) {
+					final T absValue=value.abs();
+					if(rowAbsSums!=null) rowAbsSum=rowAbsSum.add(absValue);
+					if(columnAbsSums!=null) columnAbsSums[column]=columnAbsSums[column].add(absValue);
+				}
+				if(rowMinimums!=null && value.compareTo(rowMinimum)<0) rowMinimum=value;
+				if(columnMaximums!=null && (row==0 || value.compareTo(columnMaximums[column])>0)) columnMaximums[column]=value;
+				final int cell=row*dimension+column;
+				if(minimumCells!=null) {
+					final int comparison=cell==0?-1:value.compareTo(minimum);
+					if(comparison<0) {//new minimum found, start accumulating positions anew
+						minimum=value;
+						minimumCount=0;
+					}
+					if(comparison<=0) minimumCells=append(minimumCells,minimumCount++,cell);
+				}
+				if(maximumCells!=null) {
+					final int comparison=cell==0?1:value.compareTo(maximum);
+					if(comparison>0) {//new maximum found, start accumulating positions anew
+						maximum=value;
+						maximumCount=0;
+					}
+					if(comparison>=0) maximumCells=append(maximumCells,maximumCount++,cell);
+				}
+			}
+			if(rowSums!=null) rowSums[row]=rowSum;
+			if(rowAbsSums!=null) rowAbsSums[row]=rowAbsSum;
+			if(rowMinimums!=null) rowMinimums[row]=rowMinimum;
+		}
+	}
+
+	private static int[] append(final int[] cells,final int count,final int cell) {
+		final int[] target=count<cells.length?cells:Arrays.copyOf(cells,cells.length*2);
+		target[count]=cell;
+		return target;
+	}
+
+	private void require(final Statistic statistic) {
+		if(!statistics.contains(statistic)) throw new RuntimeException(String.format("statistic %s wasn't requested",statistic));
+	}
+
+	private List<T> asList(final T[] values,final Statistic statistic) {
+		require(statistic);
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
+	private Matrix<T>.PositionSet toPositions(final int[] cells,final int count) {
+		final BitSet marked=new BitSet();
+		for(int k=0;k<count;k++) {
+			marked.set(cells[k]);
+		}
+		final Matrix<T>.PositionSet positions=matrix.new PositionSet();
+		positions.addCells(marked,0);
+		return positions;
+	}
+
+	public List<T> getSums(final IndexType iType) {
+		return iType==IndexType.ROW?asList(rowSums,Statistic.ROW_SUMS):asList(columnSums,Statistic.COLUMN_SUMS);
+	}
+
+	public List<T> getAbsSums(final IndexType iType) {
+		return iType==IndexType.ROW?asList(rowAbsSums,Statistic.ROW_ABS_SUMS):asList(columnAbsSums,Statistic.COLUMN_ABS_SUMS);
+	}
+
+	/**
+	 * Returns matrix norm, same as {@link Matrix#getNorm(IndexType)}
+	 * @param iType maximum of row sums of absolute values, if {@code ROW}, or column ones, if {@code COLUMN}
+	 * @return matrix norm
+	 */
+	public T getNorm(final IndexType iType) {
+		T norm=null;
+		for(final T sum:getAbsSums(iType)) {
+			norm=norm==null?sum:norm.max(sum);
+		}
+		return norm;
+	}
+
+	public List<T> getRowMinimums() {
+		return asList(rowMinimums,Statistic.ROW_MINIMUMS);
+	}
+
+	public List<T> getColumnMaximums() {
+		return asList(columnMaximums,Statistic.COLUMN_MAXIMUMS);
+	}
+
+	/**
+	 * Returns positions of global extremums, same as {@link Matrix#getExtremums(boolean)}
+	 * @param maximum return maximums if {@code true} or minimums if {@code false}
+	 * @return set of positions
+	 */
+	public Matrix<T>.PositionSet getExtremums(final boolean maximum) {
+		if(maximum) {
+			require(Statistic.MAXIMUMS);
+			return toPositions(maximumCells,maximumCount);
+		}else {
+			require(Statistic.MINIMUMS);
+			return toPositions(minimumCells,minimumCount);
+		}
+	}
+
+	public T getExtremum(final boolean maximum) {
+		require(maximum?Statistic.MAXIMUMS:Statistic.MINIMUMS);
+		return maximum?this.maximum:this.minimum;
+	}
+
+	/**
+	 * Returns saddle points, that are minimums of its row and maximums of its column at the same time.
+	 * It takes one more pass over matrix, the same one as {@link Matrix#getSaddlePointSet(boolean)} does
+	 * @return compact set of positions where saddle points located
+	 */
+	public Matrix<T>.PositionSet getSaddlePoints() {
+		require(Statistic.ROW_MINIMUMS);
+		require(Statistic.COLUMN_MAXIMUMS);
+		return matrix.collectSaddlePoints(rowMinimums,columnMaximums,false);
+	}
+
+}
@@ -0,0 +1,151 @@
+package chapter2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes matrix as text row by row in the format of {@link Matrix#toString()}: elements are right-aligned to fixed width and followed by comma,
+ * matrix is enclosed in braces. Only one row is kept in reusable buffer at a time, so huge matrices are written in bounded memory.
+ * Output may be restricted to window of rows and columns and summarized by leaving first and last rows (columns) of window only
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public class MatrixWriter {
+
+	public static final int DEFAULT_WIDTH=10;
+	private static final String ELLIPSIS="...";
+
+	@FunctionalInterface
+	private interface LineSink {
+		void accept(final StringBuilder line) throws IOException;
+	}
+
+	private final int width;
+	private int fromRow=0, toRow=Integer.MAX_VALUE, fromColumn=0, toColumn=Integer.MAX_VALUE;
+	private int head=Integer.MAX_VALUE, tail=0;
+
+	public MatrixWriter() {
+		this(DEFAULT_WIDTH);
+	}
+
+	/**
+	 * @param width minimal width of element, shorter elements are padded with spaces on the left
+	 */
+	public MatrixWriter(final int width) {
+		if(width<0) throw new RuntimeException(String.format("width (%d) must be non-negative",width));
+		this.width=width;
+	}
+
+	/**
+	 * Restricts output to rows within [from,to)
+	 */
+	public MatrixWriter rows(final int from,final int to) {
+		if(from<0 || from>=to) throw new RuntimeException(String.format("range of rows [%d,%d) must be non-empty",from,to));
+		fromRow=from;
+		toRow=to;
+		return this;
+	}
+
+	/**
+	 * Restricts output to columns within [from,to)
+	 */
+	public MatrixWriter columns(final int from,final int to) {
+		if(from<0 || from>=to) throw new RuntimeException(String.format("range of columns [%d,%d) must be non-empty",from,to));
+		fromColumn=from;
+		toColumn=to;
+		return this;
+	}
+
+	/**
+	 * Writes only {@code head} first and {@code tail} last rows and columns of window, skipped ones are replaced by ellipsis
+	 */
+	public MatrixWriter summarize(final int head,final int tail) {
+		if(head<0 || tail<0) throw new RuntimeException(String.format("numbers of rows and columns (%d,%d) must be non-negative",head,tail));
+		this.head=head;
+		this.tail=tail;
+		return this;
+	}
+
+	//appends element right-aligned to 'width' and followed by comma
+	static void pad(final StringBuilder line,final CharSequence text,final int width) {
+		for(int space=text.length();space<width;space++) line.append(' ');
+		line.append(text).append(',');
+	}
+
+	private void pad(final StringBuilder line,final CharSequence text) {
+		pad(line,text,width);
+	}
+
+	//checks whether index within [from,to) is skipped by summarization
+	private boolean skipped(final int index,final int from,final int to) {
+		return to-from>head+tail && index>=from+head && index<to-tail;
+	}
+
+	private void write(final Matrix<?> matrix,final LineSink sink) throws IOException {
+		final int dimension=matrix.getDimension();
+		final int rowEnd=Math.min(toRow,dimension), columnEnd=Math.min(toColumn,dimension);
+		final StringBuilder line=new StringBuilder();
+		line.append("{\n");
+		sink.accept(line);
+		for(int row=fromRow;row<rowEnd;row++) {
+			line.setLength(0);
+			if(skipped(row,fromRow,rowEnd)) {//replace skipped rows by single line
+				pad(line,ELLIPSIS);
+				row=rowEnd-tail-1;
+			}else {
+				for(int column=fromColumn;column<columnEnd;column++) {
+					if(skipped(column,fromColumn,columnEnd)) {
+						pad(line,ELLIPSIS);
+						column=columnEnd-tail-1;
+					}else {
+						pad(line,matrix.get(row,column).toString());
+					}
+				}
+			}
+			line.append('\n');
+			sink.accept(line);
+		}
+		line.setLength(0);
+		line.append("}\n");
+		sink.accept(line);
+	}
+
+	/**
+	 * Writes matrix to character stream, e.g. {@code Writer} or {@code StringBuilder}
+	 * @param matrix matrix to write
+	 * @param out destination
+	 * @throws IOException if writing fails
+	 */
+	public void write(final Matrix<?> matrix,final Appendable out) throws IOException {
+		write(matrix,line->out.append(line));
+	}
+
+	/**
+	 * Writes matrix to channel in UTF-8
+	 * @param matrix matrix to write
+	 * @param channel destination
+	 * @throws IOException if writing fails
+	 */
+	public void write(final Matrix<?> matrix,final WritableByteChannel channel) throws IOException {
+		final CharsetEncoder encoder=StandardCharsets.UTF_8.newEncoder();
+		final ByteBuffer bytes=ByteBuffer.allocateDirect(MatrixParser.BUFFER_SIZE);
+		write(matrix,line->{
+			final CharBuffer chars=CharBuffer.wrap(line);
+			CoderResult result;
+			do {
+				result=encoder.encode(chars,bytes,false);
+				if(result.isError()) result.throwException();
+				bytes.flip();
+				while(bytes.hasRemaining()) channel.write(bytes);
+				bytes.clear();
+			}while(result.isOverflow());
+		});
+	}
+
+}
@@ -0,0 +1,322 @@
+package chapter2;
+
+import java.lang.reflect.Array;
+import java.util.BitSet;
+
+import math.Ordinal;
+import utils.Utensils;
+
+/**
+ * Applies computations to square neighbourhoods (windows) of {@code (2*radius+1)x(2*radius+1)} elements centered at every element of matrix.
+ * Windows are clipped at matrix borders. Cells far enough from borders are processed by separate loop without clipping,
+ * min/max filters and box sums are separable and take O(1) amortized time per cell regardless of radius.
+ * Box sums scan rows first and columns afterwards by bands of columns, keeping running sum per column.
+ * Min/max filters slide monotone deque along every row as it enters ring of {@code 2*radius+2} filtered rows
+ * and slide deque per column along the ring, deques keep equal elements to count ties of extremum for local extremums
+ *
+ * @author Serhii Pylypenko
+ * @param <T> type of matrix element
+ * @version 1.5
+ */
+public class Stencil<T extends Ordinal<T>> {
+
+	@FunctionalInterface
+	public interface Kernel<T extends Ordinal<T>> {
+		T apply(final Stencil<T>.Window window);
+	}
+
+	/**
+	 * Neighbourhood of element passed to {@link Kernel}, bounds are absolute indices clipped by matrix borders
+	 */
+	public class Window {
+		private int row, column;
+		private int fromRow, toRow, fromColumn, toColumn;
+		private boolean interior;
+
+		private void moveToRow(final int row) {
+			this.row=row;
+			fromRow=Math.max(0,row-radius);
+			toRow=Math.min(dimension,row+radius+1);
+		}
+
+		private void moveToColumn(final int column,final boolean interior) {
+			this.column=column;
+			this.interior=interior;
+			if(interior) {
+				fromColumn=column-radius;
+				toColumn=column+radius+1;
+			}else {
+				fromColumn=Math.max(0,column-radius);
+				toColumn=Math.min(dimension,column+radius+1);
+			}
+		}
+
+		public int getRow() { return row;}
+		public int getColumn() { return column;}
+		public int getFromRow() { return fromRow;}
+		public int getToRow() { return toRow;}
+		public int getFromColumn() { return fromColumn;}
+		public int getToColumn() { return toColumn;}
+
+		//window lies within matrix entirely
+		public boolean isInterior() { return interior;}
+
+		public T getValue() {
+			return matrix.get(row,column);
+		}
+
+		public T get(final int row,final int column) {
+			return matrix.get(row,column);
+		}
+
+		public int size() {
+			return (toRow-fromRow)*(toColumn-fromColumn);
+		}
+	}
+
+	private final Matrix<T> matrix;
+	private final int dimension;
+	private final int radius;
+
+	/**
+	 * @param matrix source of elements
+	 * @param radius distance from center of window to its border, 1 for 3x3 windows, 2 for 5x5 and so on
+	 */
+	public Stencil(final Matrix<T> matrix,final int radius) {
+		if(radius<0) throw new RuntimeException(String.format("radius (%d) must be non-negative",radius));
+		this.matrix=matrix;
+		this.dimension=matrix.getDimension();
+		this.radius=radius;
+	}
+
+	private void processInBands(final boolean parallel,final Utensils.BandProcessor processor) {
+		if(parallel) Utensils.processInBands(dimension,Math.max(1,Matrix.MIN_BAND_CELLS/(dimension*(2*radius+1))),processor);
+		else processor.process(0,dimension);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[][] allocate() {
+		return (T[][])Array.newInstance(Ordinal.class,new int[] {dimension,dimension});
+	}
+
+	/**
+	 * Computes new matrix, every element of which is result of {@code kernel} applied to neighbourhood of corresponding element of source matrix
+	 * @param kernel computes value for window
+	 * @param parallel processes bands of rows concurrently if {@code true}
+	 * @return new matrix
+	 */
+	public Matrix<T> apply(final Kernel<T> kernel,final boolean parallel) {
+		final T[][] result=allocate();
+		processInBands(parallel,(from,to)->{
+			final Window window=new Window();
+			for(int row=from;row<to;row++) {
+				window.moveToRow(row);
+				final boolean interiorRow=row>=radius && row+radius<dimension;
+				final int interiorFrom=interiorRow?radius:dimension, interiorTo=interiorRow?dimension-radius:dimension;
+				final T[] line=result[row];
+				for(int column=0;column<interiorFrom;column++) {//left border or the whole row if it is close to top or bottom border
+					window.moveToColumn(column,false);
+					line[column]=kernel.apply(window);
+				}
+				for(int column=interiorFrom;column<interiorTo;column++) {
+					window.moveToColumn(column,true);
+					line[column]=kernel.apply(window);
+				}
+				for(int column=interiorTo;column<dimension;column++) {//right border
+					window.moveToColumn(column,false);
+					line[column]=kernel.apply(window);
+				}
+			}
+		});
+		return new Matrix<T>(result);
+	}
+
+	/**
+	 * Receives extremums of windows centered at elements of row and numbers of elements equal to them, arrays are reused for next rows
+	 */
+	@FunctionalInterface
+	private interface RowSink<T> {
+		void accept(final int row,final T[] extremums,final int[] counts);
+	}
+
+	private static <T extends Ordinal<T>> int compare(final T value,final T other,final boolean maximum) {
+		final int comparison=value.compareTo(other);
+		return maximum?comparison:-comparison;
+	}
+
+	//fills 'target' with extremum of window of 'source' elements within 'radius' of every element and 'counts' with number of elements equal to it,
+	//indices are kept in ring 'deque', equal elements are kept too, so that leading run of elements equal to front is counted while sliding
+	private void slideRow(final T[] source,final T[] target,final int[] counts,final int[] deque,final boolean maximum) {
+		int head=0, size=0, run=0;
+		for(int index=0;index<dimension+radius;index++) {
+			if(index<dimension) {//drop elements that will never become extremum and append entering one
+				final T value=source[index];
+				while(size>0 && compare(value,source[deque[(head+size-1)%deque.length]],maximum)>0) size--;
+				deque[(head+size++)%deque.length]=index;
+				if(size==1 || value.compareTo(source[deque[head]])==0) run=size;//all elements left in deque are equal
+			}
+			final int center=index-radius;
+			if(center>=0) {
+				if(deque[head]<center-radius) {//front element left the window
+					head=(head+1)%deque.length;
+					size--;
+					if(--run==0) {//count next run, every element is counted once when its run reaches front
+						final T front=source[deque[head]];
+						while(run<size && source[deque[(head+run)%deque.length]].compareTo(front)==0) run++;
+					}
+				}
+				target[center]=source[deque[head]];
+				counts[center]=run;
+			}
+		}
+	}
+
+	/**
+	 * Computes extremums of windows centered at rows within [from,to) and passes them to {@code sink} row by row.
+	 * Rows are filtered as they enter ring of {@code 2*radius+2} lines, that is slid along columns keeping deque for every column
+	 * and total count of elements equal to extremum in leading run of deque
+	 */
+	private void scan(final boolean maximum,final int from,final int to,final RowSink<T> sink) {
+		final int capacity=2*radius+2;
+		@SuppressWarnings("unchecked")
+		final T[][] lines=(T[][])Array.newInstance(Ordinal.class,new int[] {capacity,dimension});
+		final int[][] lineCounts=new int[capacity][dimension];
+		@SuppressWarnings("unchecked")
+		final T[] source=(T[])Array.newInstance(Ordinal.class,dimension), extremums=(T[])Array.newInstance(Ordinal.class,dimension);
+		final int[] counts=new int[dimension], rowDeque=new int[capacity];
+		final int[][] deques=new int[dimension][capacity];
+		final int[] heads=new int[dimension], sizes=new int[dimension], runs=new int[dimension], runCounts=new int[dimension];
+		for(int index=Math.max(0,from-radius);index<to+radius;index++) {
+			if(index<dimension) {//row leaving the ring was dropped from deques before
+				final T[] line=lines[index%capacity];
+				final int[] lineCount=lineCounts[index%capacity];
+				for(int column=0;column<dimension;column++) source[column]=matrix.get(index,column);
+				slideRow(source,line,lineCount,rowDeque,maximum);
+				for(int column=0;column<dimension;column++) {
+					final int[] deque=deques[column];
+					final T value=line[column];
+					int size=sizes[column];
+					while(size>0 && compare(value,lines[deque[(heads[column]+size-1)%capacity]%capacity][column],maximum)>0) size--;
+					deque[(heads[column]+size++)%capacity]=index;
+					sizes[column]=size;
+					if(size==1) {
+						runs[column]=1;
+						runCounts[column]=lineCount[column];
+					}else if(value.compareTo(lines[deque[heads[column]]%capacity][column])==0) {//all rows left in deque are equal
+						runs[column]=size;
+						runCounts[column]+=lineCount[column];
+					}
+				}
+			}
+			final int center=index-radius;
+			if(center<from) continue;
+			for(int column=0;column<dimension;column++) {
+				final int[] deque=deques[column];
+				if(deque[heads[column]]<center-radius) {
+					runCounts[column]-=lineCounts[deque[heads[column]]%capacity][column];
+					heads[column]=(heads[column]+1)%capacity;
+					sizes[column]--;
+					if(--runs[column]==0) {
+						final T front=lines[deque[heads[column]]%capacity][column];
+						int run=0, runCount=0;
+						for(int row;run<sizes[column] && lines[(row=deque[(heads[column]+run)%capacity])%capacity][column].compareTo(front)==0;run++) {
+							runCount+=lineCounts[row%capacity][column];
+						}
+						runs[column]=run;
+						runCounts[column]=runCount;
+					}
+				}
+				extremums[column]=lines[deque[heads[column]]%capacity][column];
+				counts[column]=runCounts[column];
+			}
+			sink.accept(center,extremums,counts);
+		}
+	}
+
+	private T[][] filter(final boolean maximum,final boolean parallel) {
+		final T[][] result=allocate();
+		processInBands(parallel,(from,to)->scan(maximum,from,to,(row,extremums,counts)->System.arraycopy(extremums,0,result[row],0,dimension)));
+		return result;
+	}
+
+	/**
+	 * Computes minimum of every window
+	 * @param parallel processes bands of rows (columns) concurrently if {@code true}
+	 * @return new matrix of minimums
+	 */
+	public Matrix<T> getMinimums(final boolean parallel) {
+		return new Matrix<T>(filter(false,parallel));
+	}
+
+	/**
+	 * Computes maximum of every window
+	 * @param parallel processes bands of rows (columns) concurrently if {@code true}
+	 * @return new matrix of maximums
+	 */
+	public Matrix<T> getMaximums(final boolean parallel) {
+		return new Matrix<T>(filter(true,parallel));
+	}
+
+	/**
+	 * Computes sum of every window by running sums along rows and then along columns
+	 * @param parallel processes bands of rows (columns) concurrently if {@code true}
+	 * @return new matrix of sums
+	 */
+	public Matrix<T> getSums(final boolean parallel) {
+		final T[][] rows=allocate(), result=allocate();
+		final T zero=matrix.get(0,0).zero();
+		processInBands(parallel,(from,to)->{
+			for(int row=from;row<to;row++) {
+				T sum=zero;
+				for(int index=0;index<dimension+radius;index++) {
+					if(index<dimension) sum=sum.add(matrix.get(row,index));
+					final int center=index-radius;
+					if(center>=0) {
+						rows[row][center]=sum;
+						if(center-radius>=0) sum=sum.subtract(matrix.get(row,center-radius));
+					}
+				}
+			}
+		});
+		processInBands(parallel,(from,to)->{
+			@SuppressWarnings("unchecked")
+			final T[] sums=(T[])Array.newInstance(Ordinal.class,to-from);
+			for(int offset=0;offset<sums.length;offset++) sums[offset]=zero;
+			for(int index=0;index<dimension+radius;index++) {
+				final int center=index-radius;
+				for(int column=from;column<to;column++) {
+					final int offset=column-from;
+					if(index<dimension) sums[offset]=sums[offset].add(rows[index][column]);
+					if(center>=0) {
+						result[center][column]=sums[offset];
+						if(center-radius>=0) sums[offset]=sums[offset].subtract(rows[center-radius][column]);
+					}
+				}
+			}
+		});
+		return new Matrix<T>(result);
+	}
+
+	/**
+	 * Collects strict local extremums, i.e. elements that are strictly greater (less) than all other elements of their windows.
+	 * Element is local extremum if it is equal to extremum of its window and no other element of window is equal to it.
+	 * Rows are scanned in bands, every one of them keeps ring of {@code 2*radius+2} filtered rows only
+	 * @param maximum collects maximums if {@code true}, minimums otherwise
+	 * @param parallel processes bands of rows concurrently if {@code true}
+	 * @return set of positions of local extremums
+	 */
+	public Matrix<T>.PositionSet getLocalExtremums(final boolean maximum,final boolean parallel) {
+		final Matrix<T>.PositionSet positions=matrix.new PositionSet();
+		processInBands(parallel,(from,to)->{
+			final BitSet cells=new BitSet();
+			scan(maximum,from,to,(row,extremums,counts)->{
+				for(int column=0;column<dimension;column++) {
+					if(counts[column]==1 && matrix.get(row,column).compareTo(extremums[column])==0) cells.set((row-from)*dimension+column);
+				}
+			});
+			positions.addCells(cells,from*dimension);
+		});
+		return positions;
+	}
+
+}
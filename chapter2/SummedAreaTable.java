@@ -0,0 +1,94 @@
+package chapter2;
+
+import java.lang.reflect.Array;
+
+import math.Ordinal;
+import utils.Utensils;
+
+/**
+ * Index of matrix that holds sums of all elements above and to the left of every cell,
+ * so that sum of any rectangle (and thus of any row or column segment) is computed by four lookups.
+ * Table is built in parallel on first query after matrix has been modified, concurrent queries share it:
+ * table is published with modification count it was built for as immutable snapshot, rebuilding is synchronized.
+ * Sums of {@code Real} elements lose precision, since sum of small rectangle is difference of large prefix sums
+ * of magnitude up to sum of the whole matrix; use compensated sums of {@link Matrix} if it matters
+ * 
+ * @author Serhii Pylypenko
+ * @param <T> type of matrix element
+ * @version 1.5
+ */
+class SummedAreaTable<T extends Ordinal<T>> {
+
+	private final Matrix<T> matrix;
+	/**
+	 * Table and modification count of matrix it was built for
+	 */
+	private static final class Snapshot<T> {
+		private final T[][] sums;//sums[i][j] holds sum of rows [0,i) and columns [0,j)
+		private final int builtAt;
+
+		Snapshot(final T[][] sums,final int builtAt) {
+			this.sums=sums;
+			this.builtAt=builtAt;
+		}
+	}
+
+	private volatile Snapshot<T> snapshot;
+
+	SummedAreaTable(final Matrix<T> matrix) {
+		this.matrix=matrix;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[][] build() {
+		final int dimension=matrix.getDimension();
+		final T zero=matrix.get(0,0).zero();
+		final T[][] table=(T[][])Array.newInstance(Ordinal.class,new int[] {dimension+1,dimension+1});
+		final int minBand=Math.max(1,Matrix.MIN_BAND_CELLS/dimension);
+		for(int column=0;column<=dimension;column++) {
+			table[0][column]=zero;
+		}
+		Utensils.processInBands(dimension,minBand,(from,to)->{//accumulate every row from left to right
+			for(int row=from;row<to;row++) {
+				final T[] line=table[row+1];
+				line[0]=zero;
+				for(int column=0;column<dimension;column++) {
+					line[column+1]=line[column].add(matrix.get(row,column));
+				}
+			}
+		});
+		Utensils.processInBands(dimension,minBand,(from,to)->{//accumulate every column from top to bottom
+			for(int row=1;row<=dimension;row++) {
+				for(int column=from+1;column<=to;column++) {
+					table[row][column]=table[row][column].add(table[row-1][column]);
+				}
+			}
+		});
+		return table;
+	}
+
+	//returns table built for current state of matrix, modification count is read before building, so modifications during build make it stale
+	private T[][] getSums() {
+		Snapshot<T> current=snapshot;
+		if(current==null || current.builtAt!=matrix.getModCount()) {
+			synchronized(this) {
+				current=snapshot;
+				final int modCount=matrix.getModCount();
+				if(current==null || current.builtAt!=modCount) {
+					current=new Snapshot<T>(build(),modCount);
+					snapshot=current;
+				}
+			}
+		}
+		return current.sums;
+	}
+
+	/**
+	 * Computes sum of elements within rows [fromRow,toRow) and columns [fromColumn,toColumn)
+	 */
+	T sum(final int fromRow,final int fromColumn,final int toRow,final int toColumn) {
+		final T[][] sums=getSums();
+		return sums[toRow][toColumn].subtract(sums[fromRow][toColumn]).subtract(sums[toRow][fromColumn]).add(sums[fromRow][fromColumn]);
+	}
+
+}
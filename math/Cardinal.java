@@ -22,14 +22,23 @@ public class Cardinal implements Ordinal<Cardinal>{
 		this(0L);
 	}
 	
-	private Cardinal(final BigInteger numValue) {
+	public Cardinal(final BigInteger numValue) {
 		value=numValue;
 	}
 	
+	public BigInteger bigIntegerValue() {
+		return value;
+	}
+	
 	@Override public String toString() {
 		return value.toString();
 	}
 	
+	//throws ArithmeticException if value doesn't fit in long
+	public long longValue() {
+		return value.longValueExact();
+	}
+	
 	@Override public Cardinal zero() {
 		return ZERO;
 	}
@@ -87,4 +96,8 @@ public class Cardinal implements Ordinal<Cardinal>{
 		if(!(o instanceof Cardinal)) return false;
 		return value.equals(((Cardinal)o).value);
 	}
+	
+	@Override public int hashCode() {
+		return value.hashCode();
+	}
 }
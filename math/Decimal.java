@@ -27,7 +27,7 @@ public class Decimal implements Ordinal<Decimal> {
 		this(0L);
 	}
 	
-	private Decimal(final BigDecimal val) {
+	public Decimal(final BigDecimal val) {
 		value=val;
 	}
 	
@@ -35,6 +35,14 @@ public class Decimal implements Ordinal<Decimal> {
 		return value.toString();
 	}
 	
+	public BigDecimal bigDecimalValue() {
+		return value;
+	}
+	
+	public double doubleValue() {
+		return value.doubleValue();
+	}
+	
 	@Override public Decimal zero() {
 		return ZERO;
 	}
@@ -97,4 +105,8 @@ public class Decimal implements Ordinal<Decimal> {
 		if(!(o instanceof Decimal)) return false;
 		return value.equals(((Decimal)o).value);
 	}
+	
+	@Override public int hashCode() {
+		return value.hashCode();
+	}
 }
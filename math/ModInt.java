@@ -0,0 +1,200 @@
+package math;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.function.Function;
+
+/**
+ * Residue modulo odd number kept in Montgomery form {@code value*2^64 mod m}, so that multiplication takes
+ * two 64-bit multiplications and a subtraction instead of division.
+ * Division multiplies by modular inverse, thus it is defined for divisors coprime with modulus (all non-zero ones for prime modulus).
+ * Residues are ordered by their signed representatives within (-m/2,m/2], that also determine sign, absolute value and maximum
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public class ModInt implements Ordinal<ModInt> {
+
+	private static final long serialVersionUID = -5806587981244659204L;
+
+	/**
+	 * Odd modulus within [3,2^62) with precomputed Montgomery constants
+	 */
+	public static final class Modulus implements Serializable {
+
+		private static final long serialVersionUID = 7417474519656108371L;
+
+		private final long value;
+		private final long inverse;//value^-1 mod 2^64
+		private final long square;//2^128 mod value, converts residue to Montgomery form
+		private transient volatile ModInt[] lastInverse;//divisor and its inverse, elimination divides many times by the same pivot
+
+		public Modulus(final long value) {
+			if(value<3 || value>=1L<<62 || value%2==0) throw new RuntimeException(String.format("modulus (%d) should be odd and within [3,2^62)",value));
+			this.value=value;
+			long inverse=value;//correct to 3 bits, every Newton step doubles number of correct bits
+			for(int step=0;step<5;step++) inverse*=2-value*inverse;
+			this.inverse=inverse;
+			square=BigInteger.ONE.shiftLeft(128).mod(BigInteger.valueOf(value)).longValue();
+		}
+
+		public long getValue() {
+			return value;
+		}
+
+		//computes (high*2^64+low)*2^-64 mod value for high<value
+		private long reduce(final long high,final long low) {
+			final long result=high-unsignedMultiplyHigh(low*inverse,value);
+			return result<0?result+value:result;
+		}
+
+		private long multiply(final long first,final long second) {
+			return reduce(unsignedMultiplyHigh(first,second),first*second);
+		}
+
+		/**
+		 * Creates residue of {@code number}
+		 */
+		public ModInt valueOf(final long number) {
+			final long residue=number%value;
+			return new ModInt(this,multiply(residue<0?residue+value:residue,square));
+		}
+
+		public Function<Long,ModInt> initializer() {
+			return this::valueOf;
+		}
+
+		@Override public boolean equals(final Object o) {
+			return o instanceof Modulus && value==((Modulus)o).value;
+		}
+
+		@Override public int hashCode() {
+			return Long.hashCode(value);
+		}
+	}
+
+	//high 64 bits of unsigned 128-bit product
+	private static long unsignedMultiplyHigh(final long first,final long second) {
+		return Math.multiplyHigh(first,second)+((first>>63)&second)+((second>>63)&first);
+	}
+
+	private final Modulus modulus;
+	private final long value;//Montgomery form of residue
+
+	private ModInt(final Modulus modulus,final long value) {
+		this.modulus=modulus;
+		this.value=value;
+	}
+
+	private ModInt create(final long value) {
+		return new ModInt(modulus,value);
+	}
+
+	private void check(final ModInt x) {
+		if(modulus.value!=x.modulus.value) throw new RuntimeException(String.format("moduli of operands (%d and %d) should be equal",modulus.value,x.modulus.value));
+	}
+
+	public Modulus getModulus() {
+		return modulus;
+	}
+
+	/**
+	 * @return residue within [0,m)
+	 */
+	public long longValue() {
+		return modulus.reduce(0,value);
+	}
+
+	/**
+	 * @return representative of residue within (-m/2,m/2]
+	 */
+	public long signedValue() {
+		final long residue=longValue();
+		return residue>modulus.value/2?residue-modulus.value:residue;
+	}
+
+	@Override public String toString() {
+		return Long.toString(longValue());
+	}
+
+	@Override public ModInt zero() {
+		return create(0);
+	}
+
+	@Override public ModInt add(final ModInt x) {
+		check(x);
+		final long sum=value+x.value;
+		return create(sum>=modulus.value?sum-modulus.value:sum);
+	}
+
+	@Override public ModInt subtract(final ModInt x) {
+		check(x);
+		final long difference=value-x.value;
+		return create(difference<0?difference+modulus.value:difference);
+	}
+
+	@Override public ModInt multiply(final ModInt x) {
+		check(x);
+		return create(modulus.multiply(value,x.value));
+	}
+
+	/**
+	 * Computes modular inverse by extended Euclidean algorithm
+	 * @return inverse residue
+	 */
+	public ModInt inverse() {
+		long a=longValue(), b=modulus.value;
+		long x=1, y=0;//invariant: x*residue=a, y*residue=b (mod m)
+		while(b!=0) {
+			final long quotient=a/b;
+			long save=a-quotient*b; a=b; b=save;
+			save=x-quotient*y; x=y; y=save;
+		}
+		if(a!=1) throw new RuntimeException(String.format("%d has no inverse modulo %d",longValue(),modulus.value));
+		return modulus.valueOf(x);
+	}
+
+	@Override public ModInt divide(final ModInt x) {
+		check(x);
+		final ModInt[] cached=modulus.lastInverse;
+		if(cached!=null && cached[0].value==x.value) return multiply(cached[1]);
+		final ModInt inverse=x.inverse();
+		modulus.lastInverse=new ModInt[] {x,inverse};
+		return multiply(inverse);
+	}
+
+	@Override public ModInt divide(final long x) {
+		return multiply(modulus.valueOf(x).inverse());
+	}
+
+	@Override public boolean positive() {
+		return signedValue()>0;
+	}
+
+	@Override public ModInt abs() {
+		return signedValue()<0?negate():this;
+	}
+
+	@Override public ModInt max(final ModInt a) {
+		return compareTo(a)>=0?this:a;
+	}
+
+	@Override public ModInt negate() {
+		return create(value==0?0:modulus.value-value);
+	}
+
+	@Override public int compareTo(final ModInt o) {
+		return Long.compare(signedValue(),o.signedValue());
+	}
+
+	@Override public boolean equals(final Object o) {
+		if(!(o instanceof ModInt)) return false;
+		final ModInt x=(ModInt)o;
+		return modulus.value==x.modulus.value && value==x.value;
+	}
+
+	@Override public int hashCode() {
+		return Long.hashCode(value)*31+modulus.hashCode();
+	}
+
+}
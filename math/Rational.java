@@ -0,0 +1,246 @@
+package math;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.function.Function;
+
+/**
+ * Exact fraction. Numerator and denominator are kept in longs while results fit in them and in BigIntegers otherwise.
+ * Fractions are not reduced after every operation: it is done only when numerator or denominator exceeds threshold
+ * (2^31 for longs, so that next multiplication most likely fits, and 2^256 for BigIntegers) and for output and hashing.
+ * Comparison and equality use cross multiplication and don't need reduced fractions
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public class Rational implements Ordinal<Rational> {
+
+	private static final long serialVersionUID = -1416530457040643541L;
+
+	public static final Function<Long,Rational> LONG_INITIALIZER = (x)->new Rational(x);
+
+	public static final Rational ZERO=new Rational(0L);
+	public static final Rational ONE=new Rational(1L);
+
+	private static final long LONG_THRESHOLD=1L<<31;
+	private static final int BIG_THRESHOLD=256;//bits
+
+	//denominator is always positive, BigIntegers are used (and are non-null) only if value doesn't fit in longs
+	private final long numerator, denominator;
+	private final BigInteger bigNumerator, bigDenominator;
+
+	public Rational(final long value) {
+		this(value,1L,null,null);
+	}
+
+	public Rational(final long numerator,final long denominator) {
+		this(BigInteger.valueOf(numerator),BigInteger.valueOf(denominator));
+	}
+
+	public Rational(final BigInteger numerator,final BigInteger denominator) {
+		this(reduceAndCreate(numerator,denominator));
+	}
+
+	private Rational(final Rational x) {
+		this(x.numerator,x.denominator,x.bigNumerator,x.bigDenominator);
+	}
+
+	private Rational(final long numerator,final long denominator,final BigInteger bigNumerator,final BigInteger bigDenominator) {
+		this.numerator=numerator;
+		this.denominator=denominator;
+		this.bigNumerator=bigNumerator;
+		this.bigDenominator=bigDenominator;
+	}
+
+	private boolean small() {
+		return bigDenominator==null;
+	}
+
+	private BigInteger getBigNumerator() {
+		return small()?BigInteger.valueOf(numerator):bigNumerator;
+	}
+
+	private BigInteger getBigDenominator() {
+		return small()?BigInteger.valueOf(denominator):bigDenominator;
+	}
+
+	//remainders keep sign of dividend, so absolute value is taken at the end to handle Long.MIN_VALUE
+	private static long gcd(long a,long b) {
+		while(b!=0) {
+			final long save=a%b; a=b; b=save;
+		}
+		return Math.abs(a);
+	}
+
+	//creates fraction of longs with positive denominator, reduces it if it has grown beyond threshold
+	private static Rational create(long numerator,long denominator) {
+		if(numerator==0) return ZERO;
+		if(numerator==Long.MIN_VALUE || denominator==Long.MIN_VALUE) return create(BigInteger.valueOf(numerator),BigInteger.valueOf(denominator));
+		if(denominator<0) {
+			numerator=-numerator;
+			denominator=-denominator;
+		}
+		if(denominator>LONG_THRESHOLD || numerator>LONG_THRESHOLD || numerator<-LONG_THRESHOLD) {
+			final long divisor=gcd(numerator,denominator);
+			numerator/=divisor;
+			denominator/=divisor;
+		}
+		return new Rational(numerator,denominator,null,null);
+	}
+
+	//creates fraction of BigIntegers with positive denominator, reduces it if it has grown beyond threshold
+	private static Rational create(BigInteger numerator,BigInteger denominator) {
+		if(denominator.signum()==0) throw new RuntimeException("denominator should be non-zero");
+		if(numerator.signum()==0) return ZERO;
+		if(denominator.signum()<0) {
+			numerator=numerator.negate();
+			denominator=denominator.negate();
+		}
+		if(Math.max(numerator.bitLength(),denominator.bitLength())>BIG_THRESHOLD) return reduceAndCreate(numerator,denominator);
+		return demote(numerator,denominator);
+	}
+
+	private static Rational reduceAndCreate(final BigInteger numerator,final BigInteger denominator) {
+		if(denominator.signum()==0) throw new RuntimeException("denominator should be non-zero");
+		final BigInteger divisor=numerator.gcd(denominator);
+		final BigInteger reducedNumerator=numerator.divide(divisor), reducedDenominator=denominator.divide(divisor);
+		return reducedDenominator.signum()<0?
+				demote(reducedNumerator.negate(),reducedDenominator.negate()):
+					demote(reducedNumerator,reducedDenominator);
+	}
+
+	//keeps fraction in longs if both parts fit
+	private static Rational demote(final BigInteger numerator,final BigInteger denominator) {
+		if(numerator.bitLength()<Long.SIZE && denominator.bitLength()<Long.SIZE) {
+			return new Rational(numerator.longValue(),denominator.longValue(),null,null);
+		}
+		return new Rational(0,0,numerator,denominator);
+	}
+
+	private Rational reduce() {
+		if(small()) {
+			final long divisor=gcd(numerator,denominator);
+			return divisor==1?this:new Rational(numerator/divisor,denominator/divisor,null,null);
+		}
+		return reduceAndCreate(bigNumerator,bigDenominator);
+	}
+
+	/**
+	 * @return numerator of reduced fraction
+	 */
+	public BigInteger getNumerator() {
+		return reduce().getBigNumerator();
+	}
+
+	/**
+	 * @return positive denominator of reduced fraction
+	 */
+	public BigInteger getDenominator() {
+		return reduce().getBigDenominator();
+	}
+
+	public double doubleValue() {
+		if(small()) return (double)numerator/denominator;
+		final Rational reduced=reduce();
+		return new BigDecimal(reduced.getBigNumerator()).divide(new BigDecimal(reduced.getBigDenominator()),MathContext.DECIMAL64).doubleValue();
+	}
+
+	@Override public String toString() {
+		final Rational reduced=reduce();
+		if(reduced.small()) return reduced.denominator==1?Long.toString(reduced.numerator):reduced.numerator+"/"+reduced.denominator;
+		return reduced.bigDenominator.equals(BigInteger.ONE)?reduced.bigNumerator.toString():reduced.bigNumerator+"/"+reduced.bigDenominator;
+	}
+
+	@Override public Rational zero() {
+		return ZERO;
+	}
+
+	@Override public Rational add(final Rational x) {
+		if(small() && x.small()) {
+			try {
+				if(denominator==x.denominator) return create(Math.addExact(numerator,x.numerator),denominator);
+				return create(
+						Math.addExact(Math.multiplyExact(numerator,x.denominator),Math.multiplyExact(x.numerator,denominator)),
+						Math.multiplyExact(denominator,x.denominator));
+			}catch(ArithmeticException e) {//proceed with BigIntegers
+			}
+		}
+		return create(
+				getBigNumerator().multiply(x.getBigDenominator()).add(x.getBigNumerator().multiply(getBigDenominator())),
+				getBigDenominator().multiply(x.getBigDenominator()));
+	}
+
+	@Override public Rational subtract(final Rational x) {
+		return add(x.negate());
+	}
+
+	@Override public Rational multiply(final Rational x) {
+		if(small() && x.small()) {
+			try {
+				return create(Math.multiplyExact(numerator,x.numerator),Math.multiplyExact(denominator,x.denominator));
+			}catch(ArithmeticException e) {//proceed with BigIntegers
+			}
+		}
+		return create(getBigNumerator().multiply(x.getBigNumerator()),getBigDenominator().multiply(x.getBigDenominator()));
+	}
+
+	public Rational inverse() {
+		if(signum()==0) throw new RuntimeException("zero has no inverse");
+		return small()?create(denominator,numerator):create(bigDenominator,bigNumerator);
+	}
+
+	@Override public Rational divide(final Rational x) {
+		return multiply(x.inverse());
+	}
+
+	@Override public Rational divide(final long x) {
+		if(x==0) throw new RuntimeException("zero has no inverse");
+		return multiply(create(1,x));
+	}
+
+	private int signum() {
+		return small()?Long.signum(numerator):bigNumerator.signum();
+	}
+
+	@Override public boolean positive() {
+		return signum()>0;
+	}
+
+	@Override public Rational abs() {
+		return signum()<0?negate():this;
+	}
+
+	@Override public Rational max(final Rational a) {
+		return compareTo(a)>=0?this:a;
+	}
+
+	@Override public Rational negate() {
+		if(small() && numerator!=Long.MIN_VALUE) return new Rational(-numerator,denominator,null,null);
+		return create(getBigNumerator().negate(),getBigDenominator());
+	}
+
+	@Override public int compareTo(final Rational o) {
+		if(small() && o.small()) {
+			if(denominator==o.denominator) return Long.compare(numerator,o.numerator);
+			try {
+				return Long.compare(Math.multiplyExact(numerator,o.denominator),Math.multiplyExact(o.numerator,denominator));
+			}catch(ArithmeticException e) {//proceed with BigIntegers
+			}
+		}
+		return getBigNumerator().multiply(o.getBigDenominator()).compareTo(o.getBigNumerator().multiply(getBigDenominator()));
+	}
+
+	@Override public boolean equals(final Object o) {
+		if(!(o instanceof Rational)) return false;
+		return compareTo((Rational)o)==0;
+	}
+
+	@Override public int hashCode() {
+		final Rational reduced=reduce();
+		return reduced.small()?
+				Long.hashCode(reduced.numerator)*31+Long.hashCode(reduced.denominator):
+					reduced.bigNumerator.hashCode()*31+reduced.bigDenominator.hashCode();
+	}
+
+}
@@ -20,6 +20,10 @@ public class Real implements Ordinal<Real> {
 		return Double.toString(value);
 	}
 	
+	public double doubleValue() {
+		return value;
+	}
+
 	@Override public Real zero() {
 		return ZERO;
 	}
@@ -66,4 +70,13 @@ public class Real implements Ordinal<Real> {
 		return new Real(-value);
 	}
 
+	@Override public boolean equals(final Object o) {
+		if(!(o instanceof Real)) return false;
+		return Double.doubleToLongBits(value)==Double.doubleToLongBits(((Real)o).value);
+	}
+
+	@Override public int hashCode() {
+		return Double.hashCode(value);
+	}
+
 }
@@ -0,0 +1,80 @@
+package math;
+
+import java.util.function.IntToDoubleFunction;
+
+import utils.Utensils;
+
+/**
+ * Accurate and reproducible summation of doubles.
+ * Values are split into blocks of fixed size, every block is summed with Neumaier compensation
+ * and partial sums are combined by balanced tree, whose shape depends only on number of values.
+ * So the result does not depend on whether blocks are summed sequentially or concurrently and on number of threads
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public final class Summation {
+
+	static final int BLOCK=1024;//number of values summed by single loop
+	private static final int MIN_PARALLEL_BLOCKS=16;//minimal number of blocks processed by one thread in parallel mode
+
+	private Summation() {}
+
+	//sums block [from,to) keeping running error, stores sum and its compensation at 'partials[2*block]' and 'partials[2*block+1]'
+	private static void sumBlock(final IntToDoubleFunction values,final int from,final int to,final double[] partials,final int block) {
+		double sum=0, compensation=0;
+		for(int index=from;index<to;index++) {
+			final double value=values.applyAsDouble(index);
+			final double total=sum+value;
+			if(Math.abs(sum)>=Math.abs(value)) compensation+=(sum-total)+value;//low-order digits of 'value' lost
+			else compensation+=(value-total)+sum;//low-order digits of 'sum' lost
+			sum=total;
+		}
+		partials[2*block]=sum;
+		partials[2*block+1]=compensation;
+	}
+
+	//combines partial sums of blocks [from,to) pairwise, returns index of block holding combined sum
+	private static int combine(final double[] partials,final int from,final int to) {
+		if(to-from==1) return from;
+		final int middle=(from+to)>>>1;
+		final int left=combine(partials,from,middle), right=combine(partials,middle,to);
+		final double first=partials[2*left], second=partials[2*right];
+		final double total=first+second;
+		final double error=Math.abs(first)>=Math.abs(second)?(first-total)+second:(second-total)+first;
+		partials[2*left]=total;
+		partials[2*left+1]+=partials[2*right+1]+error;
+		return left;
+	}
+
+	/**
+	 * Sums values with compensation
+	 * @param size number of values
+	 * @param values supplies value by its index within [0,size)
+	 * @param parallel sums blocks concurrently if {@code true}, result is the same in both modes
+	 * @return sum of values
+	 */
+	public static double sum(final int size,final IntToDoubleFunction values,final boolean parallel) {
+		if(size<=0) return 0;
+		final int blocks=(size+BLOCK-1)/BLOCK;
+		final double[] partials=new double[2*blocks];
+		final Utensils.BandProcessor processor=(from,to)->{
+			for(int block=from;block<to;block++) {
+				sumBlock(values,block*BLOCK,Math.min(size,(block+1)*BLOCK),partials,block);
+			}
+		};
+		if(parallel) Utensils.processInBands(blocks,MIN_PARALLEL_BLOCKS,processor);
+		else processor.process(0,blocks);
+		final int root=combine(partials,0,blocks);
+		return partials[2*root]+partials[2*root+1];
+	}
+
+	public static double sum(final int size,final IntToDoubleFunction values) {
+		return sum(size,values,false);
+	}
+
+	public static double sum(final double[] values) {
+		return sum(values.length,index->values[index],false);
+	}
+
+}
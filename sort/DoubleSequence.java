@@ -0,0 +1,24 @@
+package sort;
+
+/**
+ * The interface provides access to data container with primitive {@code double} keys,
+ * so sorters don't box keys and don't dispatch comparison through generic {@code Comparator}
+ * 
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public interface DoubleSequence {
+
+	@FunctionalInterface
+	interface KeyComparator {
+		int compare(final double first,final double second);
+	}
+
+	KeyComparator NATURAL=Double::compare;
+	KeyComparator REVERSED=(first,second)->Double.compare(second,first);
+
+	int size();
+	double getKey(final int index);
+	void swap(final int from,final int to);
+
+}
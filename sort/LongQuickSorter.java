@@ -0,0 +1,83 @@
+package sort;
+
+import java.util.Arrays;
+
+public class LongQuickSorter {
+
+	private final LongSequence.KeyComparator comparator;
+	private int[] postponed;//stack of pairs of range bounds
+	private int top;
+
+	public LongQuickSorter(final LongSequence.KeyComparator comparator) {
+		this.comparator=comparator;
+		postponed=new int[64];
+	}
+
+	private void push(final int left,final int right) {
+		if(top+2>postponed.length) postponed=Arrays.copyOf(postponed,postponed.length*2);
+		postponed[top++]=left;
+		postponed[top++]=right;
+	}
+
+	private void splitRange(final LongSequence seq){
+
+		final int right=postponed[--top];//take another range from stack
+		final int left=postponed[--top];
+		if(right-left+1>=2) {//process range if it's length at least 2 or greater
+
+			//select divisor
+			final int divisorIndex = (left+right)/2;
+			final long divisor=seq.getKey(divisorIndex);
+
+			int leftCandidate=left, rightCandidate=right;
+			do{
+				//seek for greater value in left subrange
+				while(
+						leftCandidate<=rightCandidate && 
+						comparator.compare(seq.getKey(leftCandidate),divisor)<=0) { 
+					leftCandidate++;
+				}
+
+				//seek for lesser value in right subrange
+				while(
+						rightCandidate>=leftCandidate && 
+						comparator.compare(seq.getKey(rightCandidate),divisor)>0) {
+					rightCandidate--;
+				}
+
+				//swap found values so that lesser value be placed left and greater value be placed right
+				if(leftCandidate<rightCandidate) {
+					seq.swap(leftCandidate, rightCandidate);
+					leftCandidate++; rightCandidate--;//step further right/left
+				}
+			}while(leftCandidate<=rightCandidate);
+
+			//save pair of subranges for next iteration
+			if(right==leftCandidate-1) {//all numbers less or equal to divisor
+				seq.swap(divisorIndex,right);//move divisor to the rightmost position and thus exclude it from next range to process
+				push(left,right-1);//save rest to process later
+			}else {
+				push(left,leftCandidate-1);//range actually was split, save left part
+			}
+
+			if(left==leftCandidate) {//do same check for the right part
+				seq.swap(divisorIndex,left);
+				push(left+1,right);
+			}else {
+				push(leftCandidate,right);
+			}
+
+		}
+
+	}
+
+	public void sort(final LongSequence seq) {
+		top=0;
+		push(0,seq.size()-1);//very first range encompasses all the list to be sorted
+		do {
+			splitRange(seq);//fetch range and split it in two
+		}while(top>0);//should be at least one range left in stack to proceed
+
+	}
+
+}
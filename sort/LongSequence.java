@@ -0,0 +1,24 @@
+package sort;
+
+/**
+ * The interface provides access to data container with primitive {@code long} keys,
+ * so sorters don't box keys and don't dispatch comparison through generic {@code Comparator}
+ * 
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public interface LongSequence {
+
+	@FunctionalInterface
+	interface KeyComparator {
+		int compare(final long first,final long second);
+	}
+
+	KeyComparator NATURAL=Long::compare;
+	KeyComparator REVERSED=(first,second)->Long.compare(second,first);
+
+	int size();
+	long getKey(final int index);
+	void swap(final int from,final int to);
+
+}
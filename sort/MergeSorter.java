@@ -0,0 +1,118 @@
+package sort;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stable merge sorter that orders indices of items rather than items themselves,
+ * so that halves are sorted concurrently and container is rearranged only once afterwards
+ *
+ * @author Serhii Pylypenko
+ * @param <K> type of sequence key
+ * @version 1.5
+ */
+public class MergeSorter<K> {
+
+	@FunctionalInterface
+	public interface IndexComparator {
+		int compare(final int first,final int second);
+	}
+
+	private static final int INSERTION_THRESHOLD=32;//ranges up to this size are sorted by insertions
+	private static final int PARALLEL_THRESHOLD=8192;//ranges up to this size are sorted in current thread
+
+	private final Comparator<? super K> comparator;
+	private final boolean parallel;
+
+	public MergeSorter(final Comparator<? super K> comparator) {
+		this(comparator,true);
+	}
+
+	public MergeSorter(final Comparator<? super K> comparator,final boolean parallel) {
+		this.comparator=comparator;
+		this.parallel=parallel;
+	}
+
+	public void sort(final Sequence<K> seq) {
+		Permutations.apply(
+				order(seq.size(),(first,second)->comparator.compare(seq.getKey(first),seq.getKey(second)),parallel),
+				seq::swap);
+	}
+
+	/**
+	 * Computes stable order of {@code size} items
+	 * @param size number of items
+	 * @param comparator compares items at given indices, should be safe to call concurrently if {@code parallel} is set
+	 * @param parallel sort large halves in common fork-join pool if {@code true}
+	 * @return permutation where k-th element is index of item to be placed at position k
+	 */
+	public static int[] order(final int size,final IndexComparator comparator,final boolean parallel) {
+		final int[] indices=Permutations.identity(size);
+		final int[] buffer=new int[size];
+		final SortTask task=new SortTask(indices,buffer,0,size,comparator,parallel);
+		if(parallel && size>PARALLEL_THRESHOLD) ForkJoinPool.commonPool().invoke(task);
+		else task.compute();
+		return indices;
+	}
+
+	private static class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 4380457920318841307L;
+
+		private final int[] indices, buffer;
+		private final int from, to;
+		private final IndexComparator comparator;
+		private final boolean parallel;
+
+		SortTask(final int[] indices,final int[] buffer,final int from,final int to,final IndexComparator comparator,final boolean parallel) {
+			this.indices=indices;
+			this.buffer=buffer;
+			this.from=from;
+			this.to=to;
+			this.comparator=comparator;
+			this.parallel=parallel;
+		}
+
+		@Override protected void compute() {
+			if(to-from<=INSERTION_THRESHOLD) {
+				insertionSort();
+				return;
+			}
+			final int middle=(from+to)>>>1;
+			final SortTask left=new SortTask(indices,buffer,from,middle,comparator,parallel);
+			final SortTask right=new SortTask(indices,buffer,middle,to,comparator,parallel);
+			if(parallel && to-from>PARALLEL_THRESHOLD) {
+				invokeAll(left,right);
+			}else {
+				left.compute();
+				right.compute();
+			}
+			merge(middle);
+		}
+
+		private void insertionSort() {
+			for(int k=from+1;k<to;k++) {
+				final int index=indices[k];
+				int hole=k;
+				while(hole>from && comparator.compare(indices[hole-1],index)>0) {//strict comparison keeps equal items in place
+					indices[hole]=indices[hole-1];
+					hole--;
+				}
+				indices[hole]=index;
+			}
+		}
+
+		private void merge(final int middle) {
+			if(comparator.compare(indices[middle-1],indices[middle])<=0) return;//halves are already in order
+			System.arraycopy(indices,from,buffer,from,to-from);
+			int left=from, right=middle, target=from;
+			while(left<middle && right<to) {
+				indices[target++]=comparator.compare(buffer[right],buffer[left])<0?buffer[right++]:buffer[left++];//left item wins ties
+			}
+			while(left<middle) indices[target++]=buffer[left++];
+			while(right<to) indices[target++]=buffer[right++];
+		}
+	}
+
+}
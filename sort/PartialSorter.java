@@ -0,0 +1,67 @@
+package sort;
+
+import java.util.Comparator;
+
+/**
+ * Places first {@code limit} extremums of sequence in its head in sorted order.
+ * Bounded heap of size {@code limit} is kept in the head of sequence itself,
+ * so the cost is O(n*log(limit)) comparisons and no extra memory is used
+ *
+ * @author Serhii Pylypenko
+ * @param <K> type of sequence key
+ * @version 1.5
+ */
+public class PartialSorter<K> {
+
+	private final Comparator<? super K> comparator;
+
+	public PartialSorter(final Comparator<? super K> comparator) {
+		this.comparator=comparator;
+	}
+
+	//restores heap property of subtree at 'index' within head of 'size' items; root holds the 'worst' of selected keys
+	private void siftDown(final Sequence<K> seq,int index,final int size) {
+		do {
+			final int left=2*index+1;
+			if(left>=size) break;//leaf reached
+			final int right=left+1;
+			final int child=right<size && comparator.compare(seq.getKey(right),seq.getKey(left))>0?right:left;
+			if(comparator.compare(seq.getKey(child),seq.getKey(index))<=0) break;//heap property holds
+			seq.swap(index,child);
+			index=child;
+		}while(true);
+	}
+
+	public void sort(final Sequence<K> dataSeq) {
+		sort(dataSeq,dataSeq.size());
+	}
+
+	//collects first 'limit' extremums of 'dataSeq' and places them in the head of sequence according to 'comparator'
+	public void sort(final Sequence<K> dataSeq,final int limit) {
+		if(dataSeq.size()<1) throw new RuntimeException("sequence to be sorted should contain at least one element");
+		if(limit<=0) throw new RuntimeException("number of elements to sort should be 1 or greater");
+
+		final int size=dataSeq.size();
+		final int heapSize=Math.min(limit,size);
+
+		//build heap within head of sequence
+		for(int index=heapSize/2-1;index>=0;index--) {
+			siftDown(dataSeq,index,heapSize);
+		}
+
+		//replace the 'worst' selected key with every better key from the tail
+		for(int index=heapSize;index<size;index++) {
+			if(comparator.compare(dataSeq.getKey(index),dataSeq.getKey(0))<0) {
+				dataSeq.swap(0,index);
+				siftDown(dataSeq,0,heapSize);
+			}
+		}
+
+		//heapsort the head so that extremums are placed in order
+		for(int last=heapSize-1;last>0;last--) {
+			dataSeq.swap(0,last);
+			siftDown(dataSeq,0,last);
+		}
+	}
+
+}
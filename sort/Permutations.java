@@ -0,0 +1,40 @@
+package sort;
+
+import java.util.BitSet;
+
+/**
+ * Helpers for sorters that compute order of items first and rearrange container afterwards
+ * 
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public final class Permutations {
+
+	@FunctionalInterface
+	public interface Swapper {
+		void swap(final int from,final int to);
+	}
+
+	private Permutations() {}
+
+	public static int[] identity(final int size) {
+		final int[] permutation=new int[size];
+		for(int k=0;k<size;k++) permutation[k]=k;
+		return permutation;
+	}
+
+	//rearranges items so that item found at 'permutation[k]' is moved to position 'k', every cycle of length L takes L-1 swaps
+	public static void apply(final int[] permutation,final Swapper swapper) {
+		final BitSet placed=new BitSet(permutation.length);
+		for(int start=placed.nextClearBit(0);start<permutation.length;start=placed.nextClearBit(start+1)) {
+			int k=start;
+			while(permutation[k]!=start) {//follow cycle until it gets back to its start
+				swapper.swap(k,permutation[k]);
+				placed.set(k);
+				k=permutation[k];
+			}
+			placed.set(k);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Finds k-th smallest key of sequence in expected linear time by quickselect:
+ * range is partitioned around divisor the same way as {@code QuickSorter} does, but only the part containing k-th position is processed further.
+ * After selection keys before k-th position are not greater and keys after it are not less than k-th key
+ *
+ * @author Serhii Pylypenko
+ * @param <K> type of sequence key
+ * @version 1.5
+ */
+public class QuickSelector<K> {
+
+	private final Comparator<? super K> comparator;
+
+	public QuickSelector(final Comparator<? super K> comparator) {
+		this.comparator=comparator;
+	}
+
+	//moves keys satisfying 'compare(key,divisor)<=0' ('<0' if strict) to the left part of [left,right], returns index of first key of the right part
+	private int partition(final Sequence<K> seq,final int left,final int right,final K divisor,final boolean strict) {
+		final int bound=strict?-1:0;
+		int leftCandidate=left, rightCandidate=right;
+		do{
+			//seek for greater value in left subrange
+			while(leftCandidate<=rightCandidate && comparator.compare(seq.getKey(leftCandidate),divisor)<=bound) {
+				leftCandidate++;
+			}
+			//seek for lesser value in right subrange
+			while(rightCandidate>=leftCandidate && comparator.compare(seq.getKey(rightCandidate),divisor)>bound) {
+				rightCandidate--;
+			}
+			//swap found values so that lesser value be placed left and greater value be placed right
+			if(leftCandidate<rightCandidate) {
+				seq.swap(leftCandidate, rightCandidate);
+				leftCandidate++; rightCandidate--;
+			}
+		}while(leftCandidate<=rightCandidate);
+		return leftCandidate;
+	}
+
+	/**
+	 * Places k-th smallest key of sequence at position {@code k}
+	 * @param seq sequence to reorder
+	 * @param k zero-based rank of key to select
+	 * @return k-th smallest key
+	 */
+	public K select(final Sequence<K> seq,final int k) {
+		if(k<0 || k>=seq.size()) throw new RuntimeException(String.format("rank (%d) must be within [0,%d)",k,seq.size()));
+		int left=0, right=seq.size()-1;
+		while(left<right) {
+			final K divisor=seq.getKey((left+right)>>>1);
+			final int split=partition(seq,left,right,divisor,false);
+			if(split<=right) {//range actually was split
+				if(k<split) right=split-1;
+				else left=split;
+			}else {//all keys are less or equal to divisor, so separate keys equal to it
+				final int equal=partition(seq,left,right,divisor,true);
+				if(k>=equal) break;//k-th key is equal to divisor
+				right=equal-1;
+			}
+		}
+		return seq.getKey(k);
+	}
+
+	private static <K> Sequence<K> asSequence(final K[] values,final int size) {
+		return new Sequence<K>() {
+			@Override public int size() {
+				return size;
+			}
+
+			@Override public K getKey(final int index) {
+				return values[index];
+			}
+
+			@Override public void swap(final int from, final int to) {
+				final K save=values[from];
+				values[from]=values[to];
+				values[to]=save;
+			}
+		};
+	}
+
+	/**
+	 * Places k-th smallest element of array at position {@code k}
+	 * @param values array to reorder
+	 * @param k zero-based rank of element to select
+	 * @return k-th smallest element
+	 */
+	public K select(final K[] values,final int k) {
+		return select(asSequence(values,values.length),k);
+	}
+
+	/**
+	 * Places {@code count} smallest elements of array in its head in ascending order in O(n+count*log(count)) time
+	 * @param values array to reorder
+	 * @param count number of smallest elements to collect
+	 */
+	public void selectTop(final K[] values,final int count) {
+		if(count<=0 || count>values.length) throw new RuntimeException(String.format("number of elements to select (%d) must be within [1,%d]",count,values.length));
+		select(values,count-1);
+		Arrays.sort(values,0,count,comparator);
+	}
+
+}
@@ -0,0 +1,95 @@
+package sort;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Stable LSD radix sorter for sequences with integer keys.
+ * Keys are read once, their range is detected and only significant bits of {@code key-min} are sorted on,
+ * so keys within small range take one counting pass and the whole sort takes O(n*passes) time
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public class RadixSorter {
+
+	private static final int DIGIT_BITS=11;//width of digit for wide ranges
+	private static final int MAX_SINGLE_PASS_BITS=16;//ranges up to 2^16 are sorted by one counting pass
+
+	private final boolean ascending;
+
+	public RadixSorter() {
+		this(true);
+	}
+
+	public RadixSorter(final boolean ascending) {
+		this.ascending=ascending;
+	}
+
+	/**
+	 * Computes stable order of sequence items without changing sequence
+	 * @param seq sequence to order
+	 * @return permutation where k-th element is index of item to be placed at position k
+	 */
+	public int[] order(final LongSequence seq) {
+		return order(seq.size(),seq::getKey);
+	}
+
+	/**
+	 * Computes stable order of items given by keys only
+	 * @param size number of items
+	 * @param key provides key of item by its index, it is called once for every item
+	 * @return permutation where k-th element is index of item to be placed at position k
+	 */
+	public int[] order(final int size,final IntToLongFunction key) {
+		int[] source=Permutations.identity(size);
+		if(size<2) return source;
+
+		final long[] keys=new long[size];
+		long min=Long.MAX_VALUE, max=Long.MIN_VALUE;
+		for(int k=0;k<size;k++) {
+			final long value=keys[k]=key.applyAsLong(k);
+			if(value<min) min=value;
+			if(value>max) max=value;
+		}
+
+		final long range=max-min;//treated as unsigned, so it never overflows
+		final int bits=Long.SIZE-Long.numberOfLeadingZeros(range);
+		if(bits==0) return source;//all keys are equal
+
+		final int digitBits=bits<=MAX_SINGLE_PASS_BITS?bits:DIGIT_BITS;
+		final long mask=(1L<<digitBits)-1;
+		final int[] counts=new int[1<<digitBits];
+		int[] target=new int[size];
+
+		for(int shift=0;shift<bits;shift+=digitBits) {
+			Arrays.fill(counts,0);
+			for(int k=0;k<size;k++) {
+				counts[digit(keys[k],min,shift,mask)]++;
+			}
+			int total=0;//turn counts into starting positions of buckets
+			for(int d=0;d<counts.length;d++) {
+				final int count=counts[d];
+				counts[d]=total;
+				total+=count;
+			}
+			for(final int index:source) {//distribute keeping relative order of equal digits
+				target[counts[digit(keys[index],min,shift,mask)]++]=index;
+			}
+			final int[] save=source;
+			source=target;
+			target=save;
+		}
+		return source;
+	}
+
+	private int digit(final long key,final long min,final int shift,final long mask) {
+		final int digit=(int)(((key-min)>>>shift)&mask);
+		return ascending?digit:(int)mask-digit;
+	}
+
+	public void sort(final LongSequence seq) {
+		Permutations.apply(order(seq),seq::swap);
+	}
+
+}
@@ -2,8 +2,6 @@ package sort;
 
 import java.util.Comparator;
 import java.util.ListIterator;
-import java.util.Map;
-import java.util.TreeMap;
 
 public class SelectionSorter<K> {
 
@@ -50,24 +48,10 @@ public class SelectionSorter<K> {
 		}	
 	}
 	
-	//creates list of extremum and then place them in the head of sequence 'dataSeq' according to 'comparator' 
+	//creates list of extremum and then place them in the head of sequence 'dataSeq' according to 'comparator'
+	//bounded heap is used instead of repeated scans, so it takes O(n*log(limit)) comparisons
 	public void buildExtremumListAndSort(final Sequence<K> dataSeq,final int limit){
-		if(dataSeq.size()<1) throw new RuntimeException("sequence to be sorted should contain at least one element");
-		if(limit<=0) throw new RuntimeException("number of elements to sort should be 1 or greater");
-		
-		//collect first 'limit' extremums of sequence
-		final Map<Integer,Integer> sortedIndices=new TreeMap<>();  
-		final int steps=Math.min(limit, dataSeq.size()-1);
-		for(int index=0;index<steps;index++) {
-			sortedIndices.put(
-				findExtremum(dataSeq.listIterator(sortedIndices)),index);
-		}
-		
-		//place extremums listed in 'sortedIndices' in the head of sequence by interchanging items
-		for(Map.Entry<Integer, Integer> entry:sortedIndices.entrySet()) {
-				dataSeq.swap(entry.getValue(), entry.getKey());
-		}
-		
+		new PartialSorter<K>(comparator).sort(dataSeq,limit);
 	}
 
 }
@@ -0,0 +1,129 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * LZ77 compression of byte blocks up to 64KB. Compressed block is a sequence of tokens, each one holds
+ * literal length (high 4 bits) and match length minus 4 (low 4 bits), values of 15 are continued by bytes added up to first one less than 255.
+ * Token is followed by literals, 2-byte offset of match and continuation of match length; the last token has literals only.
+ * Matches are found by hash table of 4-byte sequences, so compression takes single pass without searching
+ *
+ * @author Serhii Pylypenko
+ * @version 1.5
+ */
+public final class BlockCodec {
+
+	public static final int MAX_BLOCK_SIZE=1<<16;
+	private static final int MIN_MATCH=4;
+	private static final int MAX_OFFSET=(1<<16)-1;
+	private static final int HASH_BITS=12;
+	private static final int SKIP_SHIFT=6;//search step grows by one every 64 bytes without match
+
+	private BlockCodec() {}
+
+	/**
+	 * @return maximal size of compressed block of {@code length} bytes
+	 */
+	public static int maxCompressedLength(final int length) {
+		return length+length/255+16;
+	}
+
+	private static int getInt(final byte[] bytes,final int offset) {
+		return (bytes[offset]&0xFF)|(bytes[offset+1]&0xFF)<<8|(bytes[offset+2]&0xFF)<<16|bytes[offset+3]<<24;
+	}
+
+	private static int hash(final int sequence) {
+		return (sequence*-1640531535)>>>(Integer.SIZE-HASH_BITS);
+	}
+
+	//writes continuation of length that didn't fit in 4 bits of token
+	private static int putLength(final byte[] target,int offset,int length) {
+		for(;length>=255;length-=255) target[offset++]=(byte)255;
+		target[offset++]=(byte)length;
+		return offset;
+	}
+
+	private static int putLiterals(final byte[] target,int offset,final byte[] source,final int from,final int length,final int matchLength) {
+		final int token=offset++;
+		target[token]=(byte)(Math.min(length,15)<<4|Math.min(matchLength,15));
+		if(length>=15) offset=putLength(target,offset,length-15);
+		System.arraycopy(source,from,target,offset,length);
+		return offset+length;
+	}
+
+	/**
+	 * Compresses block
+	 * @param source bytes to compress
+	 * @param length number of bytes, no more than {@link #MAX_BLOCK_SIZE}
+	 * @param target destination of at least {@link #maxCompressedLength(int)} bytes
+	 * @return size of compressed block
+	 */
+	public static int compress(final byte[] source,final int length,final byte[] target) {
+		if(length>MAX_BLOCK_SIZE) throw new RuntimeException(String.format("block of %d bytes exceeds maximal size %d",length,MAX_BLOCK_SIZE));
+		final int[] table=new int[1<<HASH_BITS];
+		Arrays.fill(table,-1);
+		int position=0, anchor=0, offset=0;
+		while(position<=length-MIN_MATCH) {
+			final int sequence=getInt(source,position), slot=hash(sequence);
+			final int candidate=table[slot];
+			table[slot]=position;
+			if(candidate<0 || position-candidate>MAX_OFFSET || getInt(source,candidate)!=sequence) {
+				position+=1+((position-anchor)>>SKIP_SHIFT);
+				continue;
+			}
+			int matchLength=MIN_MATCH;
+			while(position+matchLength<length && source[candidate+matchLength]==source[position+matchLength]) matchLength++;
+			offset=putLiterals(target,offset,source,anchor,position-anchor,matchLength-MIN_MATCH);
+			final int distance=position-candidate;
+			target[offset++]=(byte)distance;
+			target[offset++]=(byte)(distance>>>8);
+			if(matchLength-MIN_MATCH>=15) offset=putLength(target,offset,matchLength-MIN_MATCH-15);
+			position+=matchLength;
+			anchor=position;
+		}
+		return putLiterals(target,offset,source,anchor,length-anchor,0);
+	}
+
+	/**
+	 * Decompresses block
+	 * @param source compressed block
+	 * @param length size of compressed block
+	 * @param target destination
+	 * @param expected size of original block
+	 */
+	public static void decompress(final byte[] source,final int length,final byte[] target,final int expected) {
+		int position=0, offset=0;
+		try {
+			while(true) {
+				final int token=source[position++]&0xFF;
+				int literals=token>>>4;
+				if(literals==15) {
+					int next;
+					do {
+						literals+=next=source[position++]&0xFF;
+					}while(next==255);
+				}
+				System.arraycopy(source,position,target,offset,literals);
+				position+=literals;
+				offset+=literals;
+				if(position==length) break;
+				final int distance=(source[position]&0xFF)|(source[position+1]&0xFF)<<8;
+				position+=2;
+				int matchLength=token&15;
+				if(matchLength==15) {
+					int next;
+					do {
+						matchLength+=next=source[position++]&0xFF;
+					}while(next==255);
+				}
+				matchLength+=MIN_MATCH;
+				if(distance==0 || distance>offset) throw new RuntimeException(String.format("invalid match offset %d at %d",distance,offset));
+				for(int from=offset-distance, end=offset+matchLength;offset<end;) target[offset++]=target[from++];//matches may overlap
+			}
+		}catch(ArrayIndexOutOfBoundsException e) {
+			throw new RuntimeException("corrupted compressed block",e);
+		}
+		if(offset!=expected) throw new RuntimeException(String.format("block decompressed to %d bytes instead of %d",offset,expected));
+	}
+
+}
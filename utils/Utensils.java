@@ -5,9 +5,70 @@ import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public final class Utensils {
 	
+	@FunctionalInterface
+	public interface BandProcessor {
+		void process(final int from,final int to);
+	}
+	
+	private static class BandTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = -3188716542613496283L;
+		
+		private final int from, to, bandSize;
+		private final BandProcessor processor;
+		
+		BandTask(final int from,final int to,final int bandSize,final BandProcessor processor) {
+			this.from=from;
+			this.to=to;
+			this.bandSize=bandSize;
+			this.processor=processor;
+		}
+
+		@Override protected void compute() {
+			if(to-from<=bandSize) {
+				processor.process(from,to);
+			}else {
+				final int middle=(from+to)>>>1;
+				invokeAll(new BandTask(from,middle,bandSize,processor),new BandTask(middle,to,bandSize,processor));
+			}
+		}
+	}
+	
+	//splits range [0,size) into bands of at least 'minBandSize' items and processes them concurrently in common fork-join pool
+	public final static void processInBands(final int size,final int minBandSize,final BandProcessor processor) {
+		final int bandSize=Math.max(Math.max(minBandSize,1),size/(4*ForkJoinPool.getCommonPoolParallelism()));
+		if(size<=bandSize) processor.process(0,size);
+		else ForkJoinPool.commonPool().invoke(new BandTask(0,size,bandSize,processor));
+	}
+	
+	//splits range [0,size) into bands of at least 'minBandSize' items, processes them by 'executor' and waits for completion
+	public final static void processInBands(final int size,final int minBandSize,final BandProcessor processor,final Executor executor) {
+		final int bandSize=Math.max(Math.max(minBandSize,1),size/(4*Runtime.getRuntime().availableProcessors()));
+		if(size<=bandSize) {
+			processor.process(0,size);
+			return;
+		}
+		final CompletableFuture<?>[] bands=new CompletableFuture<?>[(size+bandSize-1)/bandSize];
+		for(int band=0;band<bands.length;band++) {
+			final int from=band*bandSize, to=Math.min(from+bandSize,size);
+			bands[band]=CompletableFuture.runAsync(()->processor.process(from,to),executor);
+		}
+		try {
+			CompletableFuture.allOf(bands).join();
+		}catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			throw e;
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
 	public final static <T extends Serializable> T copy(final T src) {
 		final ByteArrayOutputStream baos=new ByteArrayOutputStream();